@@ -0,0 +1,58 @@
+package cofh.api.energy;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * {@link EnergyStorage} receive/extract, simulated and real, as a machine does every tick.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EnergyStorageBenchmark {
+
+	private EnergyStorage storage;
+	private int amount;
+
+	@Setup
+	public void setup() {
+
+		storage = new EnergyStorage(100000, 800);
+		storage.setEnergyStored(50000);
+	}
+
+	@Benchmark
+	public int simulateReceive() {
+
+		amount = amount + 97 & 1023;
+		return storage.receiveEnergy(amount, true);
+	}
+
+	@Benchmark
+	public int receiveThenExtract() {
+
+		amount = amount + 97 & 1023;
+		return storage.receiveEnergy(amount, false) + storage.extractEnergy(amount, false);
+	}
+
+	@Benchmark
+	public int simulateExtract() {
+
+		amount = amount + 97 & 1023;
+		return storage.extractEnergy(amount, true);
+	}
+
+}
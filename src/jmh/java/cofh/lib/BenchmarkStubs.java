@@ -0,0 +1,137 @@
+package cofh.lib;
+
+import cofh.lib.util.OreDictionaryProxy;
+import cofh.lib.util.helpers.ItemHelper;
+
+import net.minecraft.item.Item;
+import net.minecraft.item.ItemStack;
+import net.minecraft.world.biome.BiomeGenBase;
+
+/**
+ * Stand-ins for the Minecraft objects the benchmarks need, so they run headless: nothing here touches a world, the ore dictionary or the vanilla
+ * registries' contents.
+ */
+public final class BenchmarkStubs {
+
+	/**
+	 * Biome ids above the vanilla and mutated ranges, so the stubs do not replace a real biome in <code>BiomeGenBase.biomeList</code>.
+	 */
+	public static final int FIRST_BIOME_ID = 200;
+	public static final int MAX_BIOMES = 256 - FIRST_BIOME_ID;
+	private static final int FIRST_ITEM_ID = 4096;
+
+	private static Item[] items = new Item[0];
+	private static BiomeGenBase[] biomes = new BiomeGenBase[0];
+	private static boolean oreProxyInstalled;
+
+	private BenchmarkStubs() {
+
+	}
+
+	/**
+	 * Replaces {@link ItemHelper#oreProxy} with one that knows no ores, so {@link cofh.lib.inventory.ComparableItemStack} never loads the ore dictionary.
+	 */
+	public static synchronized void installOreProxy() {
+
+		if (!oreProxyInstalled) {
+			ItemHelper.oreProxy = new StubOreProxy();
+			oreProxyInstalled = true;
+		}
+	}
+
+	/**
+	 * @return <code>count</code> distinct items with ids from the item registry. The same instances are returned on every call.
+	 */
+	public static synchronized Item[] items(int count) {
+
+		if (items.length < count) {
+			Item[] newItems = new Item[count];
+			System.arraycopy(items, 0, newItems, 0, items.length);
+			for (int i = items.length; i < count; ++i) {
+				newItems[i] = new Item();
+				Item.itemRegistry.addObject(FIRST_ITEM_ID + i, "cofhbench:item" + i, newItems[i]);
+			}
+			items = newItems;
+		}
+		return items;
+	}
+
+	/**
+	 * @return <code>count</code> distinct biomes named <code>"Bench Biome &lt;i&gt;"</code>. The same instances are returned on every call.
+	 */
+	public static synchronized BiomeGenBase[] biomes(int count) {
+
+		if (count > MAX_BIOMES) {
+			throw new IllegalArgumentException("At most " + MAX_BIOMES + " stub biomes");
+		}
+		if (biomes.length < count) {
+			BiomeGenBase[] newBiomes = new BiomeGenBase[count];
+			System.arraycopy(biomes, 0, newBiomes, 0, biomes.length);
+			for (int i = biomes.length; i < count; ++i) {
+				newBiomes[i] = new StubBiome(FIRST_BIOME_ID + i).setBiomeName("Bench Biome " + i);
+			}
+			biomes = newBiomes;
+		}
+		return biomes;
+	}
+
+	private static final class StubBiome extends BiomeGenBase {
+
+		StubBiome(int id) {
+
+			super(id);
+		}
+	}
+
+	private static final class StubOreProxy extends OreDictionaryProxy {
+
+		@Override
+		public ItemStack getOre(String oreName) {
+
+			return null;
+		}
+
+		@Override
+		public int getOreID(ItemStack stack) {
+
+			return -1;
+		}
+
+		@Override
+		public int getOreID(String oreName) {
+
+			return -1;
+		}
+
+		@Override
+		public String getOreName(ItemStack stack) {
+
+			return "Unknown";
+		}
+
+		@Override
+		public String getOreName(int oreID) {
+
+			return "Unknown";
+		}
+
+		@Override
+		public boolean isOreIDEqual(ItemStack stack, int oreID) {
+
+			return false;
+		}
+
+		@Override
+		public boolean isOreNameEqual(ItemStack stack, String oreName) {
+
+			return false;
+		}
+
+		@Override
+		public boolean oreNameExists(String oreName) {
+
+			return false;
+		}
+	}
+
+}
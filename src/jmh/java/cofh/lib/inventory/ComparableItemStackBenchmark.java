@@ -0,0 +1,91 @@
+package cofh.lib.inventory;
+
+import cofh.lib.BenchmarkStubs;
+
+import java.util.HashMap;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import net.minecraft.item.Item;
+import net.minecraft.item.ItemStack;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * {@link ComparableItemStack} as a recipe map key: hashing, and a lookup with a reused query key as recipe handlers do.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ComparableItemStackBenchmark {
+
+	/**
+	 * Number of distinct items; each has <code>16</code> metadata values.
+	 */
+	@Param({ "16", "256" })
+	public int items;
+
+	private ComparableItemStack[] keys;
+	private ItemStack[] stacks;
+	private HashMap<ComparableItemStack, Integer> map;
+	private ComparableItemStack query;
+	private int cursor;
+
+	@Setup
+	public void setup() {
+
+		BenchmarkStubs.installOreProxy();
+		Item[] itemArray = BenchmarkStubs.items(items);
+		int count = items * 16;
+		keys = new ComparableItemStack[count];
+		stacks = new ItemStack[count];
+		map = new HashMap<ComparableItemStack, Integer>();
+		for (int i = 0; i < count; ++i) {
+			Item item = itemArray[i >> 4];
+			keys[i] = new ComparableItemStack(item, i & 15, 1);
+			stacks[i] = new ItemStack(item, 1, i & 15);
+			map.put(keys[i], i);
+		}
+		// shuffle so lookups do not walk the map in insertion order
+		Random rand = new Random(items);
+		for (int i = count; i-- > 1;) {
+			int j = rand.nextInt(i + 1);
+			ItemStack s = stacks[i];
+			stacks[i] = stacks[j];
+			stacks[j] = s;
+		}
+		query = new ComparableItemStack((ItemStack) null);
+	}
+
+	@Benchmark
+	public int hash() {
+
+		return keys[cursor++ & (keys.length - 1)].hashCode();
+	}
+
+	@Benchmark
+	public Integer lookup() {
+
+		return map.get(keys[cursor++ & (keys.length - 1)]);
+	}
+
+	@Benchmark
+	public Integer lookupFromStack() {
+
+		return map.get(query.set(stacks[cursor++ & (stacks.length - 1)]));
+	}
+
+}
@@ -0,0 +1,154 @@
+package cofh.lib.network;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+
+import java.nio.CharBuffer;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Encode and decode cost of the {@link ByteBufHelper} VarInt and string codecs, 64 values per invocation. Strings are also read through a
+ * {@link StringCache} and into a reused <code>CharBuffer</code>.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ByteBufHelperBenchmark {
+
+	private static final int BATCH = 64;
+
+	@State(Scope.Thread)
+	public static class VarInts {
+
+		/**
+		 * <code>small</code> fits one byte, <code>mixed</code> spans every encoded length including negatives.
+		 */
+		@Param({ "small", "mixed" })
+		public String ints;
+
+		int[] values;
+		ByteBuf buf;
+
+		@Setup
+		public void setup() {
+
+			Random rand = new Random(42);
+			values = new int[BATCH];
+			buf = Unpooled.buffer(BATCH * 5);
+			for (int i = 0; i < BATCH; ++i) {
+				values[i] = "small".equals(ints) ? rand.nextInt(64) : rand.nextInt() >> rand.nextInt(32);
+				ByteBufHelper.writeVarInt(values[i], buf);
+			}
+		}
+	}
+
+	@State(Scope.Thread)
+	public static class Strings {
+
+		/**
+		 * <code>ascii</code> is a typical frequency name, <code>unicode</code> a longer one with multi-byte characters.
+		 */
+		@Param({ "ascii", "unicode" })
+		public String strings;
+
+		String[] texts;
+		ByteBuf buf;
+		StringCache cache = new StringCache();
+		CharBuffer chars;
+
+		@Setup
+		public void setup() {
+
+			texts = new String[BATCH];
+			buf = Unpooled.buffer(BATCH * 64);
+			for (int i = 0; i < BATCH; ++i) {
+				texts[i] = "ascii".equals(strings) ? "Frequency " + i : "\u00c9nergie \u2192 r\u00e9seau \u03a9 n\u00b0" + i + " \u65e5\u672c";
+				ByteBufHelper.writeString(texts[i], buf);
+			}
+		}
+	}
+
+	@Benchmark
+	public ByteBuf writeVarInt(VarInts state) {
+
+		ByteBuf buf = state.buf.clear();
+		int[] values = state.values;
+		for (int i = 0; i < BATCH; ++i) {
+			ByteBufHelper.writeVarInt(values[i], buf);
+		}
+		return buf;
+	}
+
+	@Benchmark
+	public int readVarInt(VarInts state) {
+
+		ByteBuf buf = state.buf.readerIndex(0);
+		int r = 0;
+		for (int i = 0; i < BATCH; ++i) {
+			r += ByteBufHelper.readVarInt(buf);
+		}
+		return r;
+	}
+
+	@Benchmark
+	public ByteBuf writeString(Strings state) {
+
+		ByteBuf buf = state.buf.clear();
+		String[] texts = state.texts;
+		for (int i = 0; i < BATCH; ++i) {
+			ByteBufHelper.writeString(texts[i], buf);
+		}
+		return buf;
+	}
+
+	@Benchmark
+	public int readString(Strings state) {
+
+		ByteBuf buf = state.buf.readerIndex(0);
+		int r = 0;
+		for (int i = 0; i < BATCH; ++i) {
+			r += ByteBufHelper.readString(buf).length();
+		}
+		return r;
+	}
+
+	@Benchmark
+	public int readStringCached(Strings state) {
+
+		ByteBuf buf = state.buf.readerIndex(0);
+		StringCache cache = state.cache;
+		int r = 0;
+		for (int i = 0; i < BATCH; ++i) {
+			r += ByteBufHelper.readString(buf, cache).length();
+		}
+		return r;
+	}
+
+	@Benchmark
+	public int readStringCharBuffer(Strings state) {
+
+		ByteBuf buf = state.buf.readerIndex(0);
+		int r = 0;
+		for (int i = 0; i < BATCH; ++i) {
+			state.chars = ByteBufHelper.readString(buf, state.chars);
+			r += state.chars.remaining();
+		}
+		return r;
+	}
+
+}
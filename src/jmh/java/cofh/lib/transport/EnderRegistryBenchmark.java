@@ -0,0 +1,189 @@
+package cofh.lib.transport;
+
+import cofh.api.transport.IEnderEnergyHandler;
+import cofh.lib.util.OpenArrayHashList;
+
+import gnu.trove.map.hash.TIntObjectHashMap;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import net.minecraftforge.common.config.Configuration;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Lookups per second of {@link EnderRegistry} against the nested <code>HashMap&lt;String, TIntObjectHashMap&lt;List&gt;&gt;</code> layout it used to
+ * keep, one map per handler type.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EnderRegistryBenchmark {
+
+	@Param({ "16" })
+	public int channels;
+
+	@Param({ "64", "4096" })
+	public int frequencies;
+
+	private File configFile;
+	private EnderRegistry registry;
+	private HashMap<String, TIntObjectHashMap<List<IEnderEnergyHandler>>> nestedInput;
+	private HashMap<String, TIntObjectHashMap<List<IEnderEnergyHandler>>> nestedOutput;
+	private Handler[] handlers;
+	private int cursor;
+
+	@Setup
+	public void setup() throws IOException {
+
+		configFile = File.createTempFile("ender", ".cfg");
+		registry = new EnderRegistry(new Configuration(configFile));
+		nestedInput = new HashMap<String, TIntObjectHashMap<List<IEnderEnergyHandler>>>();
+		nestedOutput = new HashMap<String, TIntObjectHashMap<List<IEnderEnergyHandler>>>();
+
+		Random rand = new Random(channels * 31 + frequencies);
+		handlers = new Handler[1024];
+		for (int i = 0; i < handlers.length; ++i) {
+			// new String instances, as they would come from separate tiles
+			String channel = new String("player" + rand.nextInt(channels));
+			handlers[i] = new Handler(channel, rand.nextInt(frequencies));
+			registry.addEnergyHandler(handlers[i]);
+			addNested(nestedInput, handlers[i]);
+			addNested(nestedOutput, handlers[i]);
+		}
+	}
+
+	@TearDown
+	public void tearDown() {
+
+		String path = configFile.getPath();
+		path = path.substring(0, path.length() - 4);
+		configFile.delete();
+		new File(path + ".dat").delete();
+		new File(path + ".channels").delete();
+	}
+
+	private static void addNested(HashMap<String, TIntObjectHashMap<List<IEnderEnergyHandler>>> map, IEnderEnergyHandler handler) {
+
+		TIntObjectHashMap<List<IEnderEnergyHandler>> list = map.get(handler.getChannelString());
+		if (list == null) {
+			map.put(handler.getChannelString(), list = new TIntObjectHashMap<List<IEnderEnergyHandler>>());
+		}
+		List<IEnderEnergyHandler> array = list.get(handler.getFrequency());
+		if (array == null) {
+			list.put(handler.getFrequency(), array = new OpenArrayHashList<IEnderEnergyHandler>());
+		}
+		array.add(handler);
+	}
+
+	private static <T> T getNested(HashMap<String, TIntObjectHashMap<T>> map, IEnderEnergyHandler handler) {
+
+		TIntObjectHashMap<T> list = map.get(handler.getChannelString());
+		if (list != null) {
+			return list.get(handler.getFrequency());
+		}
+		return null;
+	}
+
+	@Benchmark
+	public Object nestedMaps() {
+
+		Handler h = handlers[cursor++ & (handlers.length - 1)];
+		return getNested(nestedOutput, h);
+	}
+
+	@Benchmark
+	public Object flatIndex() {
+
+		Handler h = handlers[cursor++ & (handlers.length - 1)];
+		return registry.getLinkedEnergyOutputs(h);
+	}
+
+	@Benchmark
+	public int nestedMapsInputAndOutput() {
+
+		Handler h = handlers[cursor++ & (handlers.length - 1)];
+		return getNested(nestedInput, h).size() + getNested(nestedOutput, h).size();
+	}
+
+	@Benchmark
+	public int flatIndexInputAndOutput() {
+
+		Handler h = handlers[cursor++ & (handlers.length - 1)];
+		return registry.getLinkedEnergyInputs(h).size() + registry.getLinkedEnergyOutputs(h).size();
+	}
+
+	static final class Handler implements IEnderEnergyHandler {
+
+		final String channel;
+		final int frequency;
+
+		Handler(String channel, int frequency) {
+
+			this.channel = channel;
+			this.frequency = frequency;
+		}
+
+		@Override
+		public String getChannelString() {
+
+			return channel;
+		}
+
+		@Override
+		public int getFrequency() {
+
+			return frequency;
+		}
+
+		@Override
+		public boolean setFrequency(int frequency) {
+
+			return false;
+		}
+
+		@Override
+		public boolean clearFrequency() {
+
+			return false;
+		}
+
+		@Override
+		public boolean canSendEnergy() {
+
+			return true;
+		}
+
+		@Override
+		public boolean canReceiveEnergy() {
+
+			return true;
+		}
+
+		@Override
+		public int receiveEnergy(int energy, boolean simulate) {
+
+			return 0;
+		}
+	}
+
+}
@@ -0,0 +1,174 @@
+package cofh.lib.util;
+
+import gnu.trove.procedure.TObjectProcedure;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Compares {@link ArrayHashList} against {@link OpenArrayHashList} for the access pattern of the Ender handler lists: build once, then contains/iterate
+ * every tick with the occasional remove and re-add.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ArrayHashListBenchmark {
+
+	@Param({ "chained", "open" })
+	public String impl;
+
+	@Param({ "16", "1024", "65536" })
+	public int size;
+
+	private Object[] present;
+	private Object[] absent;
+	private List<Object> list;
+	private int cursor;
+
+	private static final TObjectProcedure<Object> EVEN_HASH = new TObjectProcedure<Object>() {
+
+		@Override
+		public boolean execute(Object o) {
+
+			return (o.hashCode() & 1) == 0;
+		}
+	};
+
+	private List<Object> newList() {
+
+		return "open".equals(impl) ? new OpenArrayHashList<Object>() : new ArrayHashList<Object>();
+	}
+
+	@Setup
+	public void setup() {
+
+		Random rand = new Random(size);
+		present = new Object[size];
+		absent = new Object[size];
+		for (int i = 0; i < size; ++i) {
+			present[i] = new Key(rand.nextInt());
+			absent[i] = new Key(rand.nextInt());
+		}
+		list = newList();
+		for (Object o : present) {
+			list.add(o);
+		}
+	}
+
+	@Benchmark
+	public List<Object> build() {
+
+		List<Object> l = newList();
+		for (Object o : present) {
+			l.add(o);
+		}
+		return l;
+	}
+
+	@Benchmark
+	public List<Object> buildBulk() {
+
+		List<Object> l = newList();
+		l.addAll(Arrays.asList(present));
+		return l;
+	}
+
+	@Benchmark
+	public boolean containsHit() {
+
+		int i = cursor++ & (size - 1);
+		return list.contains(present[i]);
+	}
+
+	@Benchmark
+	public boolean containsMiss() {
+
+		int i = cursor++ & (size - 1);
+		return list.contains(absent[i]);
+	}
+
+	@Benchmark
+	public void iterate(Blackhole bh) {
+
+		for (int i = 0, e = list.size(); i < e; ++i) {
+			bh.consume(list.get(i));
+		}
+	}
+
+	@Benchmark
+	public boolean forEachElement(final Blackhole bh) {
+
+		TObjectProcedure<Object> consume = new TObjectProcedure<Object>() {
+
+			@Override
+			public boolean execute(Object o) {
+
+				bh.consume(o);
+				return true;
+			}
+		};
+		return list instanceof OpenArrayHashList ? ((OpenArrayHashList<Object>) list).forEachElement(consume) : ((ArrayHashList<Object>) list).forEachElement(consume);
+	}
+
+	/**
+	 * Rebuilds the list and drops about half of it, as a handler list does when a dimension unloads.
+	 */
+	@Benchmark
+	public List<Object> buildAndRemoveHalf() {
+
+		List<Object> l = newList();
+		l.addAll(Arrays.asList(present));
+		if (l instanceof OpenArrayHashList) {
+			((OpenArrayHashList<Object>) l).removeMatching(EVEN_HASH);
+		} else {
+			((ArrayHashList<Object>) l).removeMatching(EVEN_HASH);
+		}
+		return l;
+	}
+
+	@Benchmark
+	public boolean removeAndAddTail() {
+
+		Object o = list.get(list.size() - 1);
+		list.remove(o);
+		return list.add(o);
+	}
+
+	/**
+	 * Identity-equal key with a stable, non-trivial hash, standing in for a tile entity.
+	 */
+	static final class Key {
+
+		final int hash;
+
+		Key(int hash) {
+
+			this.hash = hash;
+		}
+
+		@Override
+		public int hashCode() {
+
+			return hash;
+		}
+	}
+
+}
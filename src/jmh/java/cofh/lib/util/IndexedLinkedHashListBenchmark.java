@@ -0,0 +1,76 @@
+package cofh.lib.util;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Positional access on {@link LinkedHashList} against {@link IndexedLinkedHashList}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class IndexedLinkedHashListBenchmark {
+
+	@Param({ "linked", "indexed" })
+	public String impl;
+
+	@Param({ "1024", "65536" })
+	public int size;
+
+	private Object[] present;
+	private int[] positions;
+	private List<Object> list;
+	private int cursor;
+
+	@Setup
+	public void setup() {
+
+		Random rand = new Random(size);
+		present = new Object[size];
+		positions = new int[size];
+		list = "indexed".equals(impl) ? new IndexedLinkedHashList<Object>() : new LinkedHashList<Object>();
+		for (int i = 0; i < size; ++i) {
+			present[i] = new ArrayHashListBenchmark.Key(rand.nextInt());
+			positions[i] = rand.nextInt(size);
+			list.add(present[i]);
+		}
+	}
+
+	@Benchmark
+	public Object get() {
+
+		return list.get(positions[cursor++ & (size - 1)]);
+	}
+
+	@Benchmark
+	public int indexOf() {
+
+		return list.indexOf(present[cursor++ & (size - 1)]);
+	}
+
+	@Benchmark
+	public Object removeAndAddAt() {
+
+		int i = positions[cursor++ & (size - 1)];
+		Object o = list.remove(i);
+		list.add(i, o);
+		return o;
+	}
+
+}
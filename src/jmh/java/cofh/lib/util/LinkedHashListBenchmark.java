@@ -0,0 +1,90 @@
+package cofh.lib.util;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * {@link LinkedHashList} used as a duplicate-free work queue: push at the tail, shift from the head, membership tests and removal from the middle.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LinkedHashListBenchmark {
+
+	@Param({ "16", "1024", "65536" })
+	public int size;
+
+	private Object[] present;
+	private Object[] absent;
+	private LinkedHashList<Object> list;
+	private int cursor;
+
+	@Setup
+	public void setup() {
+
+		Random rand = new Random(size);
+		present = new Object[size];
+		absent = new Object[size];
+		for (int i = 0; i < size; ++i) {
+			present[i] = new ArrayHashListBenchmark.Key(rand.nextInt());
+			absent[i] = new ArrayHashListBenchmark.Key(rand.nextInt());
+		}
+		list = new LinkedHashList<Object>();
+		for (Object o : present) {
+			list.push(o);
+		}
+	}
+
+	@Benchmark
+	public boolean shiftAndPush() {
+
+		return list.push(list.shift());
+	}
+
+	@Benchmark
+	public boolean containsHit() {
+
+		int i = cursor++ & (size - 1);
+		return list.contains(present[i]);
+	}
+
+	@Benchmark
+	public boolean containsMiss() {
+
+		int i = cursor++ & (size - 1);
+		return list.contains(absent[i]);
+	}
+
+	@Benchmark
+	public boolean removeAndPush() {
+
+		Object o = present[cursor++ & (size - 1)];
+		list.remove(o);
+		return list.push(o);
+	}
+
+	@Benchmark
+	public void iterate(Blackhole bh) {
+
+		for (Object o : list) {
+			bh.consume(o);
+		}
+	}
+
+}
@@ -0,0 +1,72 @@
+package cofh.lib.world.biome;
+
+import cofh.lib.BenchmarkStubs;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import net.minecraft.world.biome.BiomeGenBase;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * {@link BiomeInfoSet#contains(BiomeGenBase, Random)} as called once per generation attempt, for name-restricted features. Outside a running game the FML
+ * loader never reaches <code>AVAILABLE</code>, so {@link BiomeDictionaryArbiter#getVersion()} stays -1, the set is never compiled, and this measures the
+ * entry-by-entry fallback, not the biome id table.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BiomeInfoSetBenchmark {
+
+	@Param({ "1", "8", "24" })
+	public int entries;
+
+	private BiomeInfoSet set;
+	private BiomeGenBase[] listed;
+	private BiomeGenBase[] unlisted;
+	private Random rand;
+	private int cursor;
+
+	@Setup
+	public void setup() {
+
+		BiomeGenBase[] biomes = BenchmarkStubs.biomes(entries * 2);
+		set = new BiomeInfoSet(entries);
+		listed = new BiomeGenBase[entries];
+		unlisted = new BiomeGenBase[entries];
+		for (int i = 0; i < entries; ++i) {
+			listed[i] = biomes[i * 2];
+			unlisted[i] = biomes[i * 2 + 1];
+			// new String instances, as they would come from the world generation config
+			set.add(new BiomeInfo(new String(listed[i].biomeName)));
+		}
+		rand = new Random(entries);
+	}
+
+	@Benchmark
+	public boolean containsHit() {
+
+		return set.contains(listed[cursor++ % entries], rand);
+	}
+
+	@Benchmark
+	public boolean containsMiss() {
+
+		return set.contains(unlisted[cursor++ % entries], rand);
+	}
+
+}
@@ -21,4 +21,17 @@ public class InventoryManager {
 		}
 	}
 
+	/**
+	 * As {@link #create(Object, ForgeDirection)}, but returns an {@link InventoryManagerIndexed}, for inventories with many slots that are accessed
+	 * often.
+	 */
+	public static IInventoryManager createIndexed(Object inventory, ForgeDirection targetSide) {
+
+		if (inventory instanceof IInventory) {
+			return new InventoryManagerIndexed((IInventory) inventory, targetSide);
+		} else {
+			return null;
+		}
+	}
+
 }
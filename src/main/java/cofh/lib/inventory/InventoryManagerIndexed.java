@@ -0,0 +1,412 @@
+package cofh.lib.inventory;
+
+import cofh.lib.util.helpers.ItemHelper;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+
+import net.minecraft.inventory.IInventory;
+import net.minecraft.item.ItemStack;
+import net.minecraft.tileentity.TileEntity;
+import net.minecraft.world.World;
+import net.minecraftforge.common.util.ForgeDirection;
+
+/**
+ * An {@link IInventoryManager} for large inventories that keeps an index of which slots hold which item, and which slots are empty, so adding, removing and
+ * finding items only looks at the slots that matter instead of every slot.
+ * <p>
+ * Slot access rules come from the {@link InventoryManagerStandard} or {@link InventoryManagerSided} it wraps. Items are indexed by item and damage; NBT is
+ * checked on the slots found. Unlike the standard manager, {@link #addItem(ItemStack)} tops up existing stacks before it starts new ones.
+ * <p>
+ * The index is kept current by this manager's own changes. Hoppers, players and pipes change inventories behind its back, so before the first use in each
+ * tick it sweeps every slot, comparing the stack and its item and damage with what it last saw, and re-indexes the slots that differ. The tick is read
+ * from the world of a tile entity inventory; other inventories are swept on every call unless their owner promises to report changes, see
+ * {@link #InventoryManagerIndexed(IInventory, ForgeDirection, boolean)}. A sweep only compares references and ids, so it stays far cheaper than the item
+ * comparisons of the standard manager, and the calls within a tick are served from the index. Changes made by other code later in the same tick are seen
+ * from the next tick, or at once after {@link #invalidate()}.
+ */
+public class InventoryManagerIndexed implements IInventoryManager {
+
+	private static final int[] NO_SLOTS = new int[0];
+
+	private static final class Bucket {
+
+		final ComparableItemStack key;
+		int[] positions = new int[4];
+		int size;
+
+		Bucket(ComparableItemStack key) {
+
+			this.key = key;
+		}
+	}
+
+	private final IInventory _inv;
+	private final IInventoryManager _base;
+
+	private final Map<ComparableItemStack, Bucket> _buckets = new HashMap<ComparableItemStack, Bucket>();
+	private final BitSet _free = new BitSet();
+	private final ComparableItemStack _query = new ComparableItemStack((ItemStack) null);
+	private final boolean _notified;
+	private boolean _valid;
+	private long _sweptTime = Long.MIN_VALUE;
+
+	/* indexed by position in _slots */
+	private int[] _slots = NO_SLOTS;
+	private ItemStack[] _seen = new ItemStack[0];
+	private Bucket[] _bucket = new Bucket[0];
+	private int[] _bucketIndex = NO_SLOTS;
+
+	public InventoryManagerIndexed(IInventory inventory, ForgeDirection targetSide) {
+
+		this(inventory, targetSide, false);
+	}
+
+	/**
+	 * @param notified
+	 *            True if the owner of the inventory calls {@link #invalidate()} whenever it changes other than through this manager; slots are then never
+	 *            swept.
+	 */
+	public InventoryManagerIndexed(IInventory inventory, ForgeDirection targetSide, boolean notified) {
+
+		_inv = inventory;
+		_base = InventoryManager.create(inventory, targetSide);
+		_notified = notified;
+	}
+
+	public IInventory getInventory() {
+
+		return _inv;
+	}
+
+	/**
+	 * Discards the index; it is rebuilt on next use.
+	 */
+	public void invalidate() {
+
+		_valid = false;
+	}
+
+	@Override
+	public boolean canAddItem(ItemStack stack, int slot) {
+
+		return _base.canAddItem(stack, slot);
+	}
+
+	@Override
+	public boolean canRemoveItem(ItemStack stack, int slot) {
+
+		return _base.canRemoveItem(stack, slot);
+	}
+
+	@Override
+	public ItemStack addItem(ItemStack stack) {
+
+		if (stack == null) {
+			return null;
+		}
+		index();
+
+		int quantitytoadd = stack.stackSize;
+		int maxStackSize = Math.min(_inv.getInventoryStackLimit(), stack.getMaxStackSize());
+
+		Bucket b = _buckets.get(key(stack));
+		if (b != null) {
+			// backwards, as a stale slot found on the way is swapped out for one already visited
+			for (int i = b.size - 1; i >= 0 && quantitytoadd > 0; --i) {
+				int p = b.positions[i];
+				ItemStack s = current(p);
+				if (!ItemHelper.itemsEqualWithMetadata(s, stack, true)) {
+					continue;
+				}
+				ItemStack add = stack.copy();
+				add.stackSize = Math.min(quantitytoadd, maxStackSize - s.stackSize);
+
+				if (add.stackSize > 0 && canAddItem(add, _slots[p])) {
+					s.stackSize += add.stackSize;
+					quantitytoadd -= add.stackSize;
+					_inv.setInventorySlotContents(_slots[p], s);
+					_inv.markDirty();
+					current(p);
+				}
+			}
+		}
+		for (int p = _free.nextSetBit(0); p >= 0 && quantitytoadd > 0; p = _free.nextSetBit(p + 1)) {
+			if (current(p) != null) {
+				continue;
+			}
+			ItemStack add = stack.copy();
+			add.stackSize = Math.min(quantitytoadd, maxStackSize);
+
+			if (canAddItem(add, _slots[p])) {
+				quantitytoadd -= add.stackSize;
+				_inv.setInventorySlotContents(_slots[p], add);
+				_inv.markDirty();
+				current(p);
+			}
+		}
+
+		if (quantitytoadd == 0) {
+			return null;
+		}
+		ItemStack remaining = stack.copy();
+		remaining.stackSize = quantitytoadd;
+		return remaining;
+	}
+
+	@Override
+	public ItemStack removeItem(int maxRemove) {
+
+		if (maxRemove <= 0) {
+			return null;
+		}
+		index();
+
+		for (int p = _free.nextClearBit(0); p < _slots.length; p = _free.nextClearBit(p + 1)) {
+			ItemStack s = current(p);
+			if (s != null && canRemoveItem(s, _slots[p])) {
+				return remove(p, s, maxRemove);
+			}
+		}
+		return null;
+	}
+
+	@Override
+	public ItemStack removeItem(int maxRemove, ItemStack type) {
+
+		if (maxRemove <= 0 || type == null) {
+			return null;
+		}
+		index();
+
+		Bucket b = _buckets.get(key(type));
+		if (b == null) {
+			return null;
+		}
+		for (int i = b.size - 1; i >= 0; --i) {
+			int p = b.positions[i];
+			ItemStack s = current(p);
+			if (ItemHelper.itemsEqualWithMetadata(s, type, true) && canRemoveItem(s, _slots[p])) {
+				return remove(p, s, maxRemove);
+			}
+		}
+		return null;
+	}
+
+	@Override
+	public ItemStack getSlotContents(int slot) {
+
+		return _base.getSlotContents(slot);
+	}
+
+	@Override
+	public int hasItem(ItemStack type) {
+
+		if (type == null) {
+			return 0;
+		}
+		index();
+
+		Bucket b = _buckets.get(key(type));
+		if (b == null) {
+			return 0;
+		}
+		int quantity = 0;
+		for (int i = b.size - 1; i >= 0; --i) {
+			ItemStack s = current(b.positions[i]);
+			if (ItemHelper.itemsEqualWithMetadata(s, type, true)) {
+				quantity += s.stackSize;
+			}
+		}
+		return quantity;
+	}
+
+	@Override
+	public int findItem(ItemStack type) {
+
+		if (type == null) {
+			return -1;
+		}
+		index();
+
+		Bucket b = _buckets.get(key(type));
+		if (b == null) {
+			return -1;
+		}
+		for (int i = b.size - 1; i >= 0; --i) {
+			int p = b.positions[i];
+			if (ItemHelper.itemsEqualWithMetadata(current(p), type, true)) {
+				return _slots[p];
+			}
+		}
+		return -1;
+	}
+
+	@Override
+	public int[] getSlots() {
+
+		return _base.getSlots();
+	}
+
+	@Override
+	public Map<Integer, ItemStack> getContents() {
+
+		return _base.getContents();
+	}
+
+	/* INDEX */
+	private ItemStack remove(int p, ItemStack s, int maxRemove) {
+
+		int toRemove = Math.min(s.stackSize, maxRemove);
+		s.stackSize -= toRemove;
+		ItemStack removed = s.copy();
+		removed.stackSize = toRemove;
+		if (s.stackSize > 0) {
+			_inv.setInventorySlotContents(_slots[p], s);
+		} else {
+			_inv.setInventorySlotContents(_slots[p], null);
+		}
+		_inv.markDirty();
+		current(p);
+		return removed;
+	}
+
+	/**
+	 * Rebuilds the index if it was invalidated or the accessible slots have changed, and sweeps it for changes made by others.
+	 */
+	private void index() {
+
+		int[] slots = _base.getSlots();
+		if (slots == null) {
+			slots = NO_SLOTS;
+		}
+		if (slots != _slots) {
+			// sided inventories may return an equal array on each call
+			if (!Arrays.equals(slots, _slots)) {
+				_valid = false;
+			}
+			_slots = slots;
+		}
+		if (_valid) {
+			sweep();
+			return;
+		}
+		int n = slots.length;
+		if (_seen.length != n) {
+			_seen = new ItemStack[n];
+			_bucket = new Bucket[n];
+			_bucketIndex = new int[n];
+		} else {
+			Arrays.fill(_seen, null);
+			Arrays.fill(_bucket, null);
+		}
+		_buckets.clear();
+		_free.clear();
+		_free.set(0, n);
+		for (int p = 0; p < n; ++p) {
+			current(p);
+		}
+		_valid = true;
+		_sweptTime = worldTime();
+	}
+
+	/**
+	 * Re-indexes every slot whose stack was replaced, or changed item or damage in place, since it was last seen. At most once per tick where the tick is
+	 * known.
+	 */
+	private void sweep() {
+
+		if (_notified) {
+			return;
+		}
+		long time = worldTime();
+		if (time != Long.MIN_VALUE && time == _sweptTime) {
+			return;
+		}
+		_sweptTime = time;
+		for (int p = 0, n = _slots.length; p < n; ++p) {
+			ItemStack s = _inv.getStackInSlot(_slots[p]);
+			if (s != _seen[p] || s != null && !_bucket[p].key.equals(key(s))) {
+				update(p, s);
+			}
+		}
+	}
+
+	/**
+	 * @return The total world time of a tile entity inventory, or <code>Long.MIN_VALUE</code> if there is none.
+	 */
+	private long worldTime() {
+
+		if (_inv instanceof TileEntity) {
+			World world = ((TileEntity) _inv).getWorldObj();
+			if (world != null) {
+				return world.getTotalWorldTime();
+			}
+		}
+		return Long.MIN_VALUE;
+	}
+
+	/**
+	 * @return The stack at position <code>p</code>, after updating the index if it is not the stack last seen there.
+	 */
+	private ItemStack current(int p) {
+
+		ItemStack s = _inv.getStackInSlot(_slots[p]);
+		if (s != _seen[p]) {
+			update(p, s);
+		}
+		return s;
+	}
+
+	private void update(int p, ItemStack s) {
+
+		_seen[p] = s;
+		Bucket old = _bucket[p];
+		if (s != null && old != null && old.key.equals(key(s))) {
+			return;
+		}
+		if (old != null) {
+			int i = _bucketIndex[p];
+			int last = old.positions[--old.size];
+			old.positions[i] = last;
+			_bucketIndex[last] = i;
+			_bucket[p] = null;
+		}
+		if (s == null) {
+			_free.set(p);
+			return;
+		}
+		_free.clear(p);
+		Bucket b = _buckets.get(key(s));
+		if (b == null) {
+			b = new Bucket(_query.clone());
+			_buckets.put(b.key, b);
+		}
+		if (b.size == b.positions.length) {
+			b.positions = Arrays.copyOf(b.positions, b.size * 2);
+		}
+		_bucketIndex[p] = b.size;
+		b.positions[b.size++] = p;
+		_bucket[p] = b;
+	}
+
+	private ComparableItemStack key(ItemStack stack) {
+
+		return setKey(_query, stack);
+	}
+
+	/**
+	 * Loads the index key for <code>stack</code> into <code>key</code>. Ore names are not matched, and damage is ignored where
+	 * {@link ItemHelper#itemsDamageEqual(ItemStack, ItemStack)} ignores it, so every stack the standard manager would match shares a key.
+	 */
+	static ComparableItemStack setKey(ComparableItemStack key, ItemStack stack) {
+
+		key.item = stack.getItem();
+		key.metadata = !stack.getHasSubtypes() && stack.getMaxDamage() == 0 ? 0 : ItemHelper.getItemDamage(stack);
+		key.oreID = -1;
+		return key;
+	}
+
+}
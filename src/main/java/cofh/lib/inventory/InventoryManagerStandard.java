@@ -22,6 +22,11 @@ public class InventoryManagerStandard implements IInventoryManager {
 		_targetSide = targetSide;
 	}
 
+	public IInventory getInventory() {
+
+		return _inv;
+	}
+
 	@Override
 	public boolean canAddItem(ItemStack stack, int slot) {
 
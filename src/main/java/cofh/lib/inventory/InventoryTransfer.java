@@ -0,0 +1,299 @@
+package cofh.lib.inventory;
+
+import cofh.lib.util.helpers.ItemHelper;
+
+import java.util.Arrays;
+import java.util.HashMap;
+
+import net.minecraft.inventory.IInventory;
+import net.minecraft.item.ItemStack;
+
+/**
+ * Moves items between two inventories in one operation, for conduits and exporters that empty or fill whole inventories at once.
+ * <p>
+ * {@link #transfer(IInventoryManager, IInventoryManager, IFilter, int)} reads every accessible slot of both inventories once, plans where each source
+ * stack goes, then writes each changed slot once and marks each inventory dirty once. Access rules are those of the managers: their slots,
+ * {@link IInventoryManager#canRemoveItem(ItemStack, int)} and {@link IInventoryManager#canAddItem(ItemStack, int)}. As with
+ * {@link IInventoryManager#addItem(ItemStack)}, items top up matching stacks in the target before they start new ones.
+ * <p>
+ * Managers made by {@link InventoryManager} are transferred this way. Other managers fall back to an <code>addItem</code>/<code>removeItem</code> round trip
+ * per source slot.
+ */
+public final class InventoryTransfer {
+
+	private InventoryTransfer() {
+
+	}
+
+	public static interface IFilter {
+
+		boolean allows(ItemStack stack);
+	}
+
+	/**
+	 * The outcome of a transfer.
+	 */
+	public static final class Report {
+
+		public static final Report NONE = new Report(0, 0);
+
+		/** Number of items moved. */
+		public final int items;
+		/** Number of source-slot to target-slot moves. */
+		public final int moves;
+
+		public Report(int items, int moves) {
+
+			this.items = items;
+			this.moves = moves;
+		}
+
+		public boolean isEmpty() {
+
+			return items == 0;
+		}
+
+		@Override
+		public String toString() {
+
+			return "Report{items: " + items + ", moves: " + moves + "}";
+		}
+	}
+
+	/**
+	 * Moves up to <code>maxItems</code> items from <code>source</code> to <code>target</code>. Does nothing if both managers are for the same inventory.
+	 *
+	 * @param filter
+	 *            Picks the source stacks that may move; null moves anything.
+	 */
+	public static Report transfer(IInventoryManager source, IInventoryManager target, IFilter filter, int maxItems) {
+
+		if (source == null || target == null || maxItems <= 0) {
+			return Report.NONE;
+		}
+		IInventory sourceInv = getInventory(source);
+		IInventory targetInv = getInventory(target);
+		if (sourceInv == null || targetInv == null) {
+			return transferSlow(source, target, filter, maxItems);
+		}
+		if (sourceInv == targetInv) {
+			return Report.NONE;
+		}
+		int[] sourceSlots = source.getSlots();
+		int[] targetSlots = target.getSlots();
+		if (sourceSlots == null || targetSlots == null || sourceSlots.length == 0 || targetSlots.length == 0) {
+			return Report.NONE;
+		}
+		Plan plan = new Plan(target, targetInv, targetSlots);
+		int[] taken = new int[sourceSlots.length];
+		int items = 0, moves = 0;
+
+		for (int p = 0; p < sourceSlots.length && items < maxItems; ++p) {
+			ItemStack s = sourceInv.getStackInSlot(sourceSlots[p]);
+			if (s == null || s.stackSize <= 0 || filter != null && !filter.allows(s) || !source.canRemoveItem(s, sourceSlots[p])) {
+				continue;
+			}
+			int n = Math.min(s.stackSize, maxItems - items);
+			int before = plan.moves;
+			n = plan.place(s, n);
+			if (n > 0) {
+				taken[p] = n;
+				items += n;
+				moves += plan.moves - before;
+			}
+		}
+		if (items == 0) {
+			return Report.NONE;
+		}
+		for (int p = 0; p < sourceSlots.length; ++p) {
+			if (taken[p] == 0) {
+				continue;
+			}
+			ItemStack s = sourceInv.getStackInSlot(sourceSlots[p]);
+			s.stackSize -= taken[p];
+			sourceInv.setInventorySlotContents(sourceSlots[p], s.stackSize > 0 ? s : null);
+		}
+		plan.apply();
+		sourceInv.markDirty();
+		targetInv.markDirty();
+
+		// an indexed source notices its emptied slots when it reads them, but an indexed target cannot see its filled ones
+		if (target instanceof InventoryManagerIndexed) {
+			((InventoryManagerIndexed) target).invalidate();
+		}
+		return new Report(items, moves);
+	}
+
+	private static IInventory getInventory(IInventoryManager manager) {
+
+		if (manager instanceof InventoryManagerStandard) {
+			return ((InventoryManagerStandard) manager).getInventory();
+		} else if (manager instanceof InventoryManagerIndexed) {
+			return ((InventoryManagerIndexed) manager).getInventory();
+		}
+		return null;
+	}
+
+	private static Report transferSlow(IInventoryManager source, IInventoryManager target, IFilter filter, int maxItems) {
+
+		int[] sourceSlots = source.getSlots();
+		if (sourceSlots == null) {
+			return Report.NONE;
+		}
+		int items = 0, moves = 0;
+		for (int i = 0; i < sourceSlots.length && items < maxItems; ++i) {
+			ItemStack s = source.getSlotContents(sourceSlots[i]);
+			if (s == null || filter != null && !filter.allows(s) || !source.canRemoveItem(s, sourceSlots[i])) {
+				continue;
+			}
+			// offer a copy first and take only what the target accepted, so nothing has to be put back into a source that may refuse it
+			int count = Math.min(s.stackSize, maxItems - items);
+			ItemStack offer = s.copy();
+			offer.stackSize = count;
+			ItemStack left = target.addItem(offer);
+			int n = count - (left == null ? 0 : left.stackSize);
+			if (n <= 0) {
+				continue;
+			}
+			// removeItem takes from the first matching slot, which may hold less than this one
+			int taken = 0;
+			while (taken < n) {
+				ItemStack removed = source.removeItem(n - taken, offer);
+				if (removed == null || removed.stackSize <= 0) {
+					break;
+				}
+				taken += removed.stackSize;
+			}
+			if (taken < n) {
+				// the source gave up less than the target accepted; take the rest back out of the target
+				target.removeItem(n - taken, offer);
+				if (taken <= 0) {
+					continue;
+				}
+			}
+			items += taken;
+			++moves;
+		}
+		return items == 0 ? Report.NONE : new Report(items, moves);
+	}
+
+	/**
+	 * The planned contents of the target: a count and a representative stack per slot, with occupied slots indexed by item.
+	 */
+	private static final class Plan {
+
+		final IInventoryManager manager;
+		final IInventory inv;
+		final int[] slots;
+		final ItemStack[] types;
+		final int[] counts;
+		final boolean[] changed;
+		final HashMap<ComparableItemStack, int[]> occupied = new HashMap<ComparableItemStack, int[]>();
+		final ComparableItemStack query = new ComparableItemStack((ItemStack) null);
+		final int[] empty;
+		int emptyCount;
+		int moves;
+
+		Plan(IInventoryManager manager, IInventory inv, int[] slots) {
+
+			this.manager = manager;
+			this.inv = inv;
+			this.slots = slots;
+			int n = slots.length;
+			types = new ItemStack[n];
+			counts = new int[n];
+			changed = new boolean[n];
+			empty = new int[n];
+			for (int p = 0; p < n; ++p) {
+				ItemStack s = inv.getStackInSlot(slots[p]);
+				if (s == null) {
+					empty[emptyCount++] = p;
+				} else {
+					types[p] = s;
+					counts[p] = s.stackSize;
+					addOccupied(p);
+				}
+			}
+		}
+
+		/**
+		 * Plans moving up to <code>n</code> items like <code>stack</code> into the target.
+		 *
+		 * @return The number of items placed.
+		 */
+		int place(ItemStack stack, int n) {
+
+			int max = Math.min(inv.getInventoryStackLimit(), stack.getMaxStackSize());
+			int placed = 0;
+			int[] list = occupied.get(InventoryManagerIndexed.setKey(query, stack));
+			if (list != null) {
+				for (int i = 1, e = list[0]; i <= e && placed < n; ++i) {
+					int p = list[i];
+					if (!ItemHelper.itemsEqualWithMetadata(types[p], stack, true)) {
+						continue;
+					}
+					placed += fill(p, stack, Math.min(n - placed, max - counts[p]));
+				}
+			}
+			for (int i = 0; i < emptyCount && placed < n;) {
+				int p = empty[i];
+				int k = fill(p, stack, Math.min(n - placed, max));
+				if (k > 0) {
+					placed += k;
+					types[p] = stack;
+					empty[i] = empty[--emptyCount];
+					addOccupied(p);
+				} else {
+					++i;
+				}
+			}
+			return placed;
+		}
+
+		private int fill(int p, ItemStack stack, int k) {
+
+			if (k <= 0) {
+				return 0;
+			}
+			ItemStack add = stack.copy();
+			add.stackSize = k;
+			if (!manager.canAddItem(add, slots[p])) {
+				return 0;
+			}
+			counts[p] += k;
+			changed[p] = true;
+			++moves;
+			return k;
+		}
+
+		private void addOccupied(int p) {
+
+			ComparableItemStack key = InventoryManagerIndexed.setKey(query, types[p]);
+			int[] list = occupied.get(key);
+			if (list == null) {
+				list = new int[5];
+				occupied.put(key.clone(), list);
+			} else if (list[0] + 1 == list.length) {
+				list = Arrays.copyOf(list, list.length * 2);
+				occupied.put(key.clone(), list);
+			}
+			list[++list[0]] = p;
+		}
+
+		void apply() {
+
+			for (int p = 0; p < slots.length; ++p) {
+				if (!changed[p]) {
+					continue;
+				}
+				ItemStack s = inv.getStackInSlot(slots[p]);
+				if (s == null) {
+					s = types[p].copy();
+				}
+				s.stackSize = counts[p];
+				inv.setInventorySlotContents(slots[p], s);
+			}
+		}
+	}
+
+}
@@ -2,6 +2,8 @@ package cofh.lib.network;
 
 import io.netty.buffer.ByteBuf;
 
+import java.nio.CharBuffer;
+
 public final class ByteBufHelper {
 	
 	private ByteBufHelper() {
@@ -23,6 +25,21 @@ public final class ByteBufHelper {
 		return n ? ~r : r;
 	}
 
+	/**
+	 * @return The number of bytes {@link #writeVarInt(int, ByteBuf)} writes for <code>in</code>.
+	 */
+	public static int varIntSize(int in) {
+
+		if (in < 0) {
+			in = ~in;
+		}
+		int r = 1;
+		for (in >>>= 6; in != 0; in >>>= 7) {
+			++r;
+		}
+		return r;
+	}
+
 	public static void writeVarInt(int in, ByteBuf out) {
 
 		/*
@@ -48,25 +65,162 @@ public final class ByteBufHelper {
 		}
 	}
 
+	/* scratch space for decoding and encoding; dropped after an unusually long string */
+	private static final int SCRATCH_LIMIT = 1 << 16;
+	private static final ThreadLocal<byte[][]> BYTES = new ThreadLocal<byte[][]>() {
+
+		@Override
+		protected byte[][] initialValue() {
+
+			return new byte[][] { new byte[256] };
+		}
+	};
+	private static final ThreadLocal<char[][]> CHARS = new ThreadLocal<char[][]>() {
+
+		@Override
+		protected char[][] initialValue() {
+
+			return new char[][] { new char[256] };
+		}
+	};
+
+	private static byte[] byteScratch(int size) {
+
+		byte[][] holder = BYTES.get();
+		byte[] r = holder[0];
+		if (r.length < size) {
+			r = new byte[size];
+			if (size <= SCRATCH_LIMIT) {
+				holder[0] = r;
+			}
+		}
+		return r;
+	}
+
+	private static char[] charScratch(int size) {
+
+		char[][] holder = CHARS.get();
+		char[] r = holder[0];
+		if (r.length < size) {
+			r = new char[size];
+			if (size <= SCRATCH_LIMIT) {
+				holder[0] = r;
+			}
+		}
+		return r;
+	}
+
 	public static String readString(ByteBuf data) {
 
+		return readString(data, (StringCache) null);
+	}
+
+	/**
+	 * Reads a string written by {@link #writeString(String, ByteBuf)}, returning the instance held by <code>cache</code> if it has one for the same bytes.
+	 *
+	 * @param cache
+	 *            May be null.
+	 */
+	@SuppressWarnings("deprecation")
+	public static String readString(ByteBuf data, StringCache cache) {
+
+		int utflen = readVarInt(data);
+		if (utflen == -1) {
+			return null;
+		}
+		byte[] bytearr;
+		int offset;
+		if (data.hasArray()) {
+			// decode straight from the backing array
+			if (data.readableBytes() < utflen) {
+				throw new IndexOutOfBoundsException("string of " + utflen + " bytes exceeds readable bytes " + data.readableBytes());
+			}
+			bytearr = data.array();
+			offset = data.arrayOffset() + data.readerIndex();
+		} else {
+			bytearr = byteScratch(utflen);
+			offset = 0;
+			data.getBytes(data.readerIndex(), bytearr, 0, utflen);
+		}
+		data.skipBytes(utflen);
+
+		String r = cache == null ? null : cache.get(bytearr, offset, utflen);
+		if (r != null) {
+			return r;
+		}
+		int count = offset, end = offset + utflen;
+		while (count < end && bytearr[count] >= 0) {
+			++count;
+		}
+		if (count == end) {
+			// all ASCII: one copy, into the string itself
+			r = new String(bytearr, 0, offset, utflen);
+		} else {
+			char[] chararr = charScratch(utflen);
+			r = new String(chararr, 0, decode(bytearr, offset, utflen, chararr, 0));
+		}
+		if (cache != null) {
+			cache.put(bytearr, offset, utflen, r);
+		}
+		return r;
+	}
+
+	/**
+	 * Reads a string written by {@link #writeString(String, ByteBuf)} into a <code>CharBuffer</code> instead of a new <code>String</code>.
+	 *
+	 * @param dst
+	 *            The buffer to decode into, from position 0; a larger one is allocated if it is null or too small.
+	 * @return The buffer holding the string, flipped for reading, or null if a null string was written.
+	 */
+	public static CharBuffer readString(ByteBuf data, CharBuffer dst) {
+
 		int utflen = readVarInt(data);
 		if (utflen == -1) {
 			return null;
 		}
-		byte[] bytearr = null;
-		char[] chararr = null;
-		bytearr = new byte[utflen];
-		chararr = new char[utflen];
+		byte[] bytearr;
+		int offset;
+		if (data.hasArray()) {
+			if (data.readableBytes() < utflen) {
+				throw new IndexOutOfBoundsException("string of " + utflen + " bytes exceeds readable bytes " + data.readableBytes());
+			}
+			bytearr = data.array();
+			offset = data.arrayOffset() + data.readerIndex();
+		} else {
+			bytearr = byteScratch(utflen);
+			offset = 0;
+			data.getBytes(data.readerIndex(), bytearr, 0, utflen);
+		}
+		data.skipBytes(utflen);
+
+		// the number of chars is at most utflen
+		if (dst == null || dst.capacity() < utflen) {
+			dst = CharBuffer.allocate(utflen);
+		}
+		dst.clear();
+		if (dst.hasArray()) {
+			dst.position(decode(bytearr, offset, utflen, dst.array(), dst.arrayOffset()));
+		} else {
+			char[] chararr = charScratch(utflen);
+			dst.put(chararr, 0, decode(bytearr, offset, utflen, chararr, 0));
+		}
+		dst.flip();
+		return dst;
+	}
+
+	/**
+	 * Decodes modified UTF-8.
+	 *
+	 * @return The number of chars written to <code>chararr</code>, which may be less than <code>utflen</code>.
+	 */
+	private static int decode(byte[] bytearr, int offset, int utflen, char[] chararr, int chararr_offset) {
 
 		int c, char2, char3;
 		int count = 0;
-		int chararr_count = 0;
-
-		data.readBytes(bytearr, 0, utflen);
+		int chararr_count = chararr_offset;
 
 		while (count < utflen) {
-			c = bytearr[count] & 0xff;
+			c = bytearr[offset + count] & 0xff;
 			if (c > 127) {
 				break;
 			}
@@ -75,7 +229,7 @@ public final class ByteBufHelper {
 		}
 
 		while (count < utflen) {
-			c = bytearr[count] & 0xff;
+			c = bytearr[offset + count] & 0xff;
 			switch (c >> 4) {
 			case 0:
 			case 1:
@@ -96,7 +250,7 @@ public final class ByteBufHelper {
 				if (count > utflen) {
 					throw new IllegalArgumentException("malformed input: partial character at end");
 				}
-				char2 = bytearr[count - 1];
+				char2 = bytearr[offset + count - 1];
 				if ((char2 & 0xC0) != 0x80) {
 					throw new IllegalArgumentException("malformed input around byte " + count);
 				}
@@ -108,8 +262,8 @@ public final class ByteBufHelper {
 				if (count > utflen) {
 					throw new IllegalArgumentException("malformed input: partial character at end");
 				}
-				char2 = bytearr[count - 2];
-				char3 = bytearr[count - 1];
+				char2 = bytearr[offset + count - 2];
+				char3 = bytearr[offset + count - 1];
 				if (((char2 & 0xC0) != 0x80) || ((char3 & 0xC0) != 0x80)) {
 					throw new IllegalArgumentException("malformed input around byte " + (count - 1));
 				}
@@ -120,8 +274,29 @@ public final class ByteBufHelper {
 				throw new IllegalArgumentException("malformed input around byte " + count);
 			}
 		}
-		// The number of chars produced may be less than utflen
-		return new String(chararr, 0, chararr_count);
+		return chararr_count - chararr_offset;
+	}
+
+	/**
+	 * @return The number of bytes {@link #writeString(String, ByteBuf)} writes for <code>str</code>.
+	 */
+	public static int stringSize(String str) {
+
+		if (str == null) {
+			return 1;
+		}
+		int utflen = 0;
+		for (int i = 0, e = str.length(); i < e; ++i) {
+			int c = str.charAt(i);
+			if ((c >= 0x0001) & (c <= 0x007F)) {
+				utflen++;
+			} else if (c < 0x0800) {
+				utflen += 2;
+			} else {
+				utflen += 3;
+			}
+		}
+		return varIntSize(utflen) + utflen;
 	}
 
 	public static void writeString(String str, ByteBuf out) {
@@ -151,9 +326,18 @@ public final class ByteBufHelper {
 			throw new IllegalArgumentException("encoded string too long: " + utflen + " bytes");
 		}
 
-		byte[] bytearr = new byte[(int) utflen];
-
 		writeVarInt((int) utflen, out);
+		out.ensureWritable((int) utflen);
+
+		byte[] bytearr;
+		if (out.hasArray()) {
+			// encode straight into the backing array
+			bytearr = out.array();
+			count = out.arrayOffset() + out.writerIndex();
+		} else {
+			bytearr = byteScratch((int) utflen);
+		}
+		int start = count;
 
 		int i = 0;
 
@@ -177,7 +361,11 @@ public final class ByteBufHelper {
 				bytearr[count++] = (byte) (0x80 | ((c >> 0) & 0x3F));
 			}
 		}
-		out.writeBytes(bytearr);
+		if (out.hasArray()) {
+			out.writerIndex(out.writerIndex() + (int) utflen);
+		} else {
+			out.writeBytes(bytearr, start, (int) utflen);
+		}
 	}
 
 }
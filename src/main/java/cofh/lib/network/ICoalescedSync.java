@@ -0,0 +1,20 @@
+package cofh.lib.network;
+
+/**
+ * Implemented by tiles and containers whose fields are synchronized through a {@link PacketCoalescer}.
+ * <p>
+ * Fields are numbered 0 to 31. Both sides must agree on what each field holds; nothing but the bytes written is sent.
+ */
+public interface ICoalescedSync {
+
+	/**
+	 * Server side: writes the current value of <code>field</code>.
+	 */
+	void writeSyncField(int field, PacketBuilder out);
+
+	/**
+	 * Client side: reads a value written by {@link #writeSyncField(int, PacketBuilder)}. Must consume exactly what was written.
+	 */
+	void readSyncField(int field, PacketReader in);
+
+}
@@ -0,0 +1,305 @@
+package cofh.lib.network;
+
+import cofh.lib.util.position.BlockPosition;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.ByteBufOutputStream;
+import io.netty.buffer.PooledByteBufAllocator;
+
+import java.io.IOException;
+
+import net.minecraft.item.Item;
+import net.minecraft.item.ItemStack;
+import net.minecraft.nbt.CompressedStreamTools;
+import net.minecraft.nbt.NBTTagCompound;
+import net.minecraftforge.fluids.FluidRegistry;
+import net.minecraftforge.fluids.FluidStack;
+
+/**
+ * Writes a packet into a buffer from Netty's pooled allocator, read back with {@link PacketReader}.
+ * <p>
+ * The buffer is sized once from a {@link SizeHint}, which remembers how large packets of one kind have been, or from an explicit capacity, so it rarely
+ * has to grow. The builder owns the buffer until {@link #build()} hands it on, and {@link #release()} returns it to the pool if the packet is abandoned.
+ * A built buffer is released by whoever consumes it; writing it to a Netty channel does so. {@link #toByteArray()} copies the packet out and releases
+ * the buffer at once, for code that needs a plain array.
+ * <p>
+ * Integers written as VarInts and strings use the {@link ByteBufHelper} formats. NBT is written uncompressed.
+ */
+public class PacketBuilder {
+
+	/**
+	 * Tracks the size of recent packets of one kind, to allocate the next one at the right capacity. Thread safe.
+	 */
+	public static final class SizeHint {
+
+		private final int min;
+		private volatile int size;
+
+		public SizeHint() {
+
+			this(64);
+		}
+
+		public SizeHint(int initial) {
+
+			min = Math.max(initial, 16);
+			size = min;
+		}
+
+		public int get() {
+
+			return size;
+		}
+
+		/**
+		 * Records a packet of <code>bytes</code>. Grows at once to fit larger packets and shrinks slowly after smaller ones, so one large packet does
+		 * not keep every later buffer large.
+		 */
+		public void record(int bytes) {
+
+			int s = size;
+			if (bytes > s) {
+				size = bytes;
+			} else if (s > min) {
+				size = Math.max(min, s - ((s - bytes) >> 4));
+			}
+		}
+	}
+
+	protected ByteBuf buf;
+	protected final SizeHint hint;
+
+	public PacketBuilder() {
+
+		this(PooledByteBufAllocator.DEFAULT, 64, null);
+	}
+
+	public PacketBuilder(int capacity) {
+
+		this(PooledByteBufAllocator.DEFAULT, capacity, null);
+	}
+
+	public PacketBuilder(SizeHint hint) {
+
+		this(PooledByteBufAllocator.DEFAULT, hint.get(), hint);
+	}
+
+	public PacketBuilder(ByteBufAllocator alloc, int capacity, SizeHint hint) {
+
+		buf = alloc.buffer(capacity);
+		this.hint = hint;
+	}
+
+	/**
+	 * @return The buffer being written. Still owned by this builder.
+	 */
+	public ByteBuf buffer() {
+
+		if (buf == null) {
+			throw new IllegalStateException("Packet already built or released");
+		}
+		return buf;
+	}
+
+	public int size() {
+
+		return buffer().readableBytes();
+	}
+
+	/* PRIMITIVES */
+	public PacketBuilder writeBoolean(boolean v) {
+
+		buffer().writeBoolean(v);
+		return this;
+	}
+
+	public PacketBuilder writeByte(int v) {
+
+		buffer().writeByte(v);
+		return this;
+	}
+
+	public PacketBuilder writeShort(int v) {
+
+		buffer().writeShort(v);
+		return this;
+	}
+
+	public PacketBuilder writeInt(int v) {
+
+		buffer().writeInt(v);
+		return this;
+	}
+
+	public PacketBuilder writeLong(long v) {
+
+		buffer().writeLong(v);
+		return this;
+	}
+
+	public PacketBuilder writeFloat(float v) {
+
+		buffer().writeFloat(v);
+		return this;
+	}
+
+	public PacketBuilder writeDouble(double v) {
+
+		buffer().writeDouble(v);
+		return this;
+	}
+
+	public PacketBuilder writeBytes(byte[] v) {
+
+		ByteBufHelper.writeVarInt(v.length, buffer());
+		buf.writeBytes(v);
+		return this;
+	}
+
+	public PacketBuilder writeVarInt(int v) {
+
+		ByteBufHelper.writeVarInt(v, buffer());
+		return this;
+	}
+
+	/**
+	 * Writes the length, then each element as a VarInt.
+	 */
+	public PacketBuilder writeVarInts(int[] v) {
+
+		return writeVarInts(v, 0, v.length);
+	}
+
+	public PacketBuilder writeVarInts(int[] v, int offset, int length) {
+
+		ByteBuf buf = buffer();
+		ByteBufHelper.writeVarInt(length, buf);
+		for (int i = offset, e = offset + length; i < e; ++i) {
+			ByteBufHelper.writeVarInt(v[i], buf);
+		}
+		return this;
+	}
+
+	/**
+	 * @param v
+	 *            May be null.
+	 */
+	public PacketBuilder writeString(String v) {
+
+		ByteBufHelper.writeString(v, buffer());
+		return this;
+	}
+
+	/* TYPES */
+	/**
+	 * Writes the coordinates as VarInts, then the orientation.
+	 */
+	public PacketBuilder writeBlockPosition(BlockPosition v) {
+
+		ByteBuf buf = buffer();
+		ByteBufHelper.writeVarInt(v.x, buf);
+		ByteBufHelper.writeVarInt(v.y, buf);
+		ByteBufHelper.writeVarInt(v.z, buf);
+		buf.writeByte(v.orientation.ordinal());
+		return this;
+	}
+
+	/**
+	 * @param v
+	 *            May be null.
+	 */
+	public PacketBuilder writeNBT(NBTTagCompound v) {
+
+		ByteBuf buf = buffer();
+		if (v == null) {
+			// a compound starts with its type, which is never 0
+			buf.writeByte(0);
+			return this;
+		}
+		try {
+			CompressedStreamTools.write(v, new ByteBufOutputStream(buf));
+		} catch (IOException e) {
+			// a ByteBuf does not throw IOException
+			throw new RuntimeException(e);
+		}
+		return this;
+	}
+
+	/**
+	 * Writes the item id, stack size and damage as VarInts, then the stack's NBT.
+	 *
+	 * @param v
+	 *            May be null.
+	 */
+	public PacketBuilder writeItemStack(ItemStack v) {
+
+		ByteBuf buf = buffer();
+		if (v == null || v.getItem() == null) {
+			ByteBufHelper.writeVarInt(-1, buf);
+			return this;
+		}
+		ByteBufHelper.writeVarInt(Item.getIdFromItem(v.getItem()), buf);
+		ByteBufHelper.writeVarInt(v.stackSize, buf);
+		ByteBufHelper.writeVarInt(v.getItemDamage(), buf);
+		return writeNBT(v.stackTagCompound);
+	}
+
+	/**
+	 * Writes the fluid's name, the amount as a VarInt, then the stack's NBT. Names rather than ids, so the packet survives differing fluid ids.
+	 *
+	 * @param v
+	 *            May be null.
+	 */
+	public PacketBuilder writeFluidStack(FluidStack v) {
+
+		String name = v == null ? null : FluidRegistry.getFluidName(v);
+		ByteBufHelper.writeString(name, buffer());
+		if (name == null) {
+			return this;
+		}
+		ByteBufHelper.writeVarInt(v.amount, buf);
+		return writeNBT(v.tag);
+	}
+
+	/* OWNERSHIP */
+	/**
+	 * Hands the buffer to the caller, who must release it or pass it to something that will.
+	 */
+	public ByteBuf build() {
+
+		ByteBuf r = buffer();
+		buf = null;
+		if (hint != null) {
+			hint.record(r.readableBytes());
+		}
+		return r;
+	}
+
+	/**
+	 * @return A copy of the packet; the buffer is released.
+	 */
+	public byte[] toByteArray() {
+
+		ByteBuf r = build();
+		try {
+			byte[] a = new byte[r.readableBytes()];
+			r.getBytes(r.readerIndex(), a);
+			return a;
+		} finally {
+			r.release();
+		}
+	}
+
+	/**
+	 * Returns the buffer to the pool without building. Does nothing if already built or released.
+	 */
+	public void release() {
+
+		if (buf != null) {
+			buf.release();
+			buf = null;
+		}
+	}
+
+}
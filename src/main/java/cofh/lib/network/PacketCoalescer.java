@@ -0,0 +1,349 @@
+package cofh.lib.network;
+
+import cpw.mods.fml.common.eventhandler.SubscribeEvent;
+import cpw.mods.fml.common.gameevent.TickEvent.Phase;
+import cpw.mods.fml.common.gameevent.TickEvent.ServerTickEvent;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import net.minecraft.entity.player.EntityPlayer;
+import net.minecraft.entity.player.EntityPlayerMP;
+import net.minecraft.inventory.Container;
+import net.minecraft.server.management.PlayerManager;
+import net.minecraft.tileentity.TileEntity;
+import net.minecraft.world.WorldServer;
+
+/**
+ * Collects the tile and container fields that change during a server tick and sends each player one bundle of them at the end of the tick, instead of a
+ * packet per field.
+ * <p>
+ * Marking a field only records that it changed; its value is written by {@link ICoalescedSync#writeSyncField(int, PacketBuilder)} when the bundle is
+ * built, so a field marked many times in a tick is sent once, with its latest value. Bundles larger than {@link #compressThreshold} bytes are deflated.
+ * <p>
+ * CoFHLib has no network channel of its own: the mod supplies a {@link ISender} that wraps bundles in its packets, and passes received bundles to
+ * {@link #readBundle(EntityPlayer, ByteBuf)} on the client thread. Register the coalescer on the FML event bus to flush at the end of every tick, or call
+ * {@link #flush()}. Marking and flushing must happen on the server thread.
+ * <p>
+ * <b>Bundle format:</b>
+ * <ul>
+ * <code><b>byte</b> compressed ; [<b>VarInt</b> length] ; <b>VarInt</b> entries : <b>byte</b> kind ; <b>VarInt</b> x ; <b>VarInt</b> y ;
+ * <b>VarInt</b> z | <b>VarInt</b> windowId ; <b>VarInt</b> fields ; <b>VarInt</b> length ; <b>byte[]</b> field data</code>
+ * </ul>
+ * The length before the field data lets a client skip entries for tiles it does not have loaded.
+ */
+public class PacketCoalescer {
+
+	public static interface ISender {
+
+		void sendBundle(EntityPlayerMP player, byte[] bundle);
+	}
+
+	private static final int TILE = 0;
+	private static final int CONTAINER = 1;
+	/* decompressed bundles are untrusted */
+	private static final int MAX_BUNDLE = 2097152;
+
+	private static final class Entry {
+
+		Object target;
+		int kind;
+		int x, y, z;
+		int fields;
+	}
+
+	private static final class Queue {
+
+		final ArrayList<Entry> entries = new ArrayList<Entry>();
+		final IdentityHashMap<Object, Entry> index = new IdentityHashMap<Object, Entry>();
+		int size;
+
+		Entry get(Object target) {
+
+			Entry e = index.get(target);
+			if (e == null) {
+				if (size == entries.size()) {
+					entries.add(new Entry());
+				}
+				e = entries.get(size++);
+				e.target = target;
+				e.fields = 0;
+				index.put(target, e);
+			}
+			return e;
+		}
+
+		void clear() {
+
+			for (int i = 0; i < size; ++i) {
+				entries.get(i).target = null;
+			}
+			index.clear();
+			size = 0;
+		}
+	}
+
+	protected final ISender sender;
+	public int compressThreshold = 256;
+
+	private final IdentityHashMap<EntityPlayerMP, Queue> queues = new IdentityHashMap<EntityPlayerMP, Queue>();
+	private final ArrayList<EntityPlayerMP> players = new ArrayList<EntityPlayerMP>();
+	private final ArrayList<Queue> free = new ArrayList<Queue>();
+	private final PacketBuilder.SizeHint sizeHint = new PacketBuilder.SizeHint(256);
+	private final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+	private byte[] deflated = new byte[1024];
+
+	public PacketCoalescer(ISender sender) {
+
+		this.sender = sender;
+	}
+
+	/**
+	 * Queues <code>field</code> of <code>tile</code> for every player watching its chunk.
+	 */
+	public <T extends TileEntity & ICoalescedSync> void markTile(T tile, int field) {
+
+		if (!(tile.getWorldObj() instanceof WorldServer)) {
+			return;
+		}
+		WorldServer world = (WorldServer) tile.getWorldObj();
+		PlayerManager manager = world.getPlayerManager();
+		int chunkX = tile.xCoord >> 4, chunkZ = tile.zCoord >> 4;
+		List<?> list = world.playerEntities;
+		for (int i = 0, e = list.size(); i < e; ++i) {
+			EntityPlayerMP player = (EntityPlayerMP) list.get(i);
+			if (manager.isPlayerWatchingChunk(player, chunkX, chunkZ)) {
+				markTile(player, tile, field);
+			}
+		}
+	}
+
+	/**
+	 * Queues <code>field</code> of <code>tile</code> for <code>player</code>.
+	 */
+	public <T extends TileEntity & ICoalescedSync> void markTile(EntityPlayerMP player, T tile, int field) {
+
+		Entry e = queue(player).get(tile);
+		e.kind = TILE;
+		e.x = tile.xCoord;
+		e.y = tile.yCoord;
+		e.z = tile.zCoord;
+		e.fields |= bit(field);
+	}
+
+	/**
+	 * Queues <code>field</code> of <code>container</code> for <code>player</code>, who should have it open.
+	 */
+	public <T extends Container & ICoalescedSync> void markContainer(EntityPlayerMP player, T container, int field) {
+
+		Entry e = queue(player).get(container);
+		e.kind = CONTAINER;
+		e.x = container.windowId;
+		e.fields |= bit(field);
+	}
+
+	/**
+	 * Drops everything queued for <code>player</code>, e.g. when they log out.
+	 */
+	public void clear(EntityPlayerMP player) {
+
+		Queue q = queues.remove(player);
+		if (q != null) {
+			players.remove(player);
+			q.clear();
+			free.add(q);
+		}
+	}
+
+	@SubscribeEvent
+	public void tickEnd(ServerTickEvent evt) {
+
+		if (evt.phase == Phase.END) {
+			flush();
+		}
+	}
+
+	/**
+	 * Builds and sends every player's bundle and empties the queues.
+	 */
+	public void flush() {
+
+		if (players.isEmpty()) {
+			return;
+		}
+		PacketBuilder scratch = new PacketBuilder();
+		try {
+			for (int i = 0, e = players.size(); i < e; ++i) {
+				EntityPlayerMP player = players.get(i);
+				Queue q = queues.get(player);
+				byte[] bundle = buildBundle(player, q, scratch);
+				q.clear();
+				free.add(q);
+				if (bundle != null) {
+					sender.sendBundle(player, bundle);
+				}
+			}
+		} finally {
+			scratch.release();
+			queues.clear();
+			players.clear();
+		}
+	}
+
+	private Queue queue(EntityPlayerMP player) {
+
+		Queue q = queues.get(player);
+		if (q == null) {
+			q = free.isEmpty() ? new Queue() : free.remove(free.size() - 1);
+			queues.put(player, q);
+			players.add(player);
+		}
+		return q;
+	}
+
+	private byte[] buildBundle(EntityPlayerMP player, Queue q, PacketBuilder scratch) {
+
+		PacketBuilder out = new PacketBuilder(sizeHint);
+		try {
+			int count = 0;
+			for (int i = 0; i < q.size; ++i) {
+				Entry entry = q.entries.get(i);
+				if (entry.kind == TILE) {
+					TileEntity tile = (TileEntity) entry.target;
+					if (tile.isInvalid() || tile.getWorldObj() != player.worldObj) {
+						continue;
+					}
+				} else if (player.openContainer != entry.target) {
+					continue;
+				}
+				ICoalescedSync sync = (ICoalescedSync) entry.target;
+				ByteBuf data = scratch.buffer().clear();
+				for (int fields = entry.fields; fields != 0; fields &= fields - 1) {
+					sync.writeSyncField(Integer.numberOfTrailingZeros(fields), scratch);
+				}
+				out.writeByte(entry.kind);
+				if (entry.kind == TILE) {
+					out.writeVarInt(entry.x).writeVarInt(entry.y).writeVarInt(entry.z);
+				} else {
+					out.writeVarInt(entry.x);
+				}
+				out.writeVarInt(entry.fields).writeVarInt(data.readableBytes());
+				out.buffer().writeBytes(data);
+				++count;
+			}
+			if (count == 0) {
+				return null;
+			}
+			ByteBuf body = out.buffer();
+			sizeHint.record(body.readableBytes());
+			int length = ByteBufHelper.varIntSize(count) + body.readableBytes();
+			if (length <= compressThreshold) {
+				byte[] r = new byte[1 + length];
+				ByteBuf w = Unpooled.wrappedBuffer(r).clear();
+				w.writeByte(0);
+				ByteBufHelper.writeVarInt(count, w);
+				w.writeBytes(body);
+				return r;
+			}
+			return deflate(count, body, length);
+		} finally {
+			out.release();
+		}
+	}
+
+	private byte[] deflate(int count, ByteBuf body, int length) {
+
+		byte[] input = new byte[length];
+		ByteBuf w = Unpooled.wrappedBuffer(input).clear();
+		ByteBufHelper.writeVarInt(count, w);
+		w.writeBytes(body);
+
+		deflater.reset();
+		deflater.setInput(input);
+		deflater.finish();
+		int n = 0;
+		while (!deflater.finished()) {
+			if (n == deflated.length) {
+				deflated = Arrays.copyOf(deflated, n * 2);
+			}
+			n += deflater.deflate(deflated, n, deflated.length - n);
+		}
+		byte[] r = new byte[1 + ByteBufHelper.varIntSize(length) + n];
+		w = Unpooled.wrappedBuffer(r).clear();
+		w.writeByte(1);
+		ByteBufHelper.writeVarInt(length, w);
+		w.writeBytes(deflated, 0, n);
+		return r;
+	}
+
+	/**
+	 * Applies a bundle to the tiles and open container of <code>player</code>. Call on the client thread.
+	 */
+	public static void readBundle(EntityPlayer player, ByteBuf data) {
+
+		if (data.readByte() != 0) {
+			int length = ByteBufHelper.readVarInt(data);
+			if (length < 0 || length > MAX_BUNDLE) {
+				throw new IllegalArgumentException("bundle of " + length + " bytes");
+			}
+			byte[] input = new byte[data.readableBytes()];
+			data.readBytes(input);
+			byte[] output = new byte[length];
+			Inflater inflater = new Inflater();
+			try {
+				inflater.setInput(input);
+				if (inflater.inflate(output) != length || !inflater.finished()) {
+					throw new IllegalArgumentException("bundle length mismatch");
+				}
+			} catch (DataFormatException e) {
+				throw new IllegalArgumentException(e);
+			} finally {
+				inflater.end();
+			}
+			data = Unpooled.wrappedBuffer(output);
+		}
+		PacketReader in = new PacketReader(data);
+		for (int count = ByteBufHelper.readVarInt(data); count > 0; --count) {
+			int kind = data.readByte();
+			Object target;
+			if (kind == TILE) {
+				int x = ByteBufHelper.readVarInt(data), y = ByteBufHelper.readVarInt(data), z = ByteBufHelper.readVarInt(data);
+				target = player.worldObj.blockExists(x, y, z) ? player.worldObj.getTileEntity(x, y, z) : null;
+			} else {
+				int windowId = ByteBufHelper.readVarInt(data);
+				target = player.openContainer != null && player.openContainer.windowId == windowId ? player.openContainer : null;
+			}
+			int fields = ByteBufHelper.readVarInt(data);
+			int length = ByteBufHelper.readVarInt(data);
+			int start = data.readerIndex(), end = start + length;
+			if (target instanceof ICoalescedSync) {
+				ICoalescedSync sync = (ICoalescedSync) target;
+				for (; fields != 0; fields &= fields - 1) {
+					sync.readSyncField(Integer.numberOfTrailingZeros(fields), in);
+				}
+				if (data.readerIndex() != end) {
+					throw new IllegalStateException(target.getClass().getName() + " read " + (data.readerIndex() - start) + " of " + length + " bytes");
+				}
+			} else {
+				data.readerIndex(end);
+			}
+		}
+	}
+
+	private static int bit(int field) {
+
+		if (field < 0 || field > 31) {
+			throw new IllegalArgumentException("field " + field);
+		}
+		return 1 << field;
+	}
+
+}
@@ -0,0 +1,201 @@
+package cofh.lib.network;
+
+import cofh.lib.util.position.BlockPosition;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufInputStream;
+
+import java.io.IOException;
+
+import net.minecraft.item.Item;
+import net.minecraft.item.ItemStack;
+import net.minecraft.nbt.CompressedStreamTools;
+import net.minecraft.nbt.NBTSizeTracker;
+import net.minecraft.nbt.NBTTagCompound;
+import net.minecraftforge.common.util.ForgeDirection;
+import net.minecraftforge.fluids.FluidRegistry;
+import net.minecraftforge.fluids.FluidStack;
+
+/**
+ * Reads a packet written by {@link PacketBuilder}.
+ * <p>
+ * The reader does not take ownership of the buffer unless told to; {@link #release()} releases it if it does.
+ */
+public class PacketReader {
+
+	/* same limit as FluidHelper; packets are untrusted */
+	private static final long NBT_LIMIT = 2097152L;
+
+	protected final ByteBuf buf;
+	protected final StringCache strings;
+	protected boolean owned;
+
+	public PacketReader(ByteBuf buf) {
+
+		this(buf, null, false);
+	}
+
+	/**
+	 * @param strings
+	 *            Shares repeated strings between packets; may be null.
+	 * @param owned
+	 *            True if {@link #release()} should release <code>buf</code>.
+	 */
+	public PacketReader(ByteBuf buf, StringCache strings, boolean owned) {
+
+		this.buf = buf;
+		this.strings = strings;
+		this.owned = owned;
+	}
+
+	public ByteBuf buffer() {
+
+		return buf;
+	}
+
+	public int remaining() {
+
+		return buf.readableBytes();
+	}
+
+	/* PRIMITIVES */
+	public boolean readBoolean() {
+
+		return buf.readBoolean();
+	}
+
+	public byte readByte() {
+
+		return buf.readByte();
+	}
+
+	public short readShort() {
+
+		return buf.readShort();
+	}
+
+	public int readInt() {
+
+		return buf.readInt();
+	}
+
+	public long readLong() {
+
+		return buf.readLong();
+	}
+
+	public float readFloat() {
+
+		return buf.readFloat();
+	}
+
+	public double readDouble() {
+
+		return buf.readDouble();
+	}
+
+	public byte[] readBytes() {
+
+		byte[] r = new byte[checkLength(ByteBufHelper.readVarInt(buf), 1)];
+		buf.readBytes(r);
+		return r;
+	}
+
+	public int readVarInt() {
+
+		return ByteBufHelper.readVarInt(buf);
+	}
+
+	public int[] readVarInts() {
+
+		int[] r = new int[checkLength(ByteBufHelper.readVarInt(buf), 1)];
+		for (int i = 0; i < r.length; ++i) {
+			r[i] = ByteBufHelper.readVarInt(buf);
+		}
+		return r;
+	}
+
+	public String readString() {
+
+		return ByteBufHelper.readString(buf, strings);
+	}
+
+	/* TYPES */
+	public BlockPosition readBlockPosition() {
+
+		int x = ByteBufHelper.readVarInt(buf);
+		int y = ByteBufHelper.readVarInt(buf);
+		int z = ByteBufHelper.readVarInt(buf);
+		return new BlockPosition(x, y, z, ForgeDirection.getOrientation(buf.readByte()));
+	}
+
+	public NBTTagCompound readNBT() {
+
+		if (buf.getByte(buf.readerIndex()) == 0) {
+			buf.skipBytes(1);
+			return null;
+		}
+		try {
+			return CompressedStreamTools.func_152456_a(new ByteBufInputStream(buf), new NBTSizeTracker(NBT_LIMIT));
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	public ItemStack readItemStack() {
+
+		int id = ByteBufHelper.readVarInt(buf);
+		if (id < 0) {
+			return null;
+		}
+		int size = ByteBufHelper.readVarInt(buf);
+		int damage = ByteBufHelper.readVarInt(buf);
+		NBTTagCompound tag = readNBT();
+		Item item = Item.getItemById(id);
+		if (item == null) {
+			return null;
+		}
+		ItemStack r = new ItemStack(item, size, damage);
+		r.stackTagCompound = tag;
+		return r;
+	}
+
+	public FluidStack readFluidStack() {
+
+		String name = readString();
+		if (name == null) {
+			return null;
+		}
+		int amount = ByteBufHelper.readVarInt(buf);
+		NBTTagCompound tag = readNBT();
+		FluidStack r = FluidRegistry.getFluidStack(name, amount);
+		if (r != null) {
+			r.tag = tag;
+		}
+		return r;
+	}
+
+	/* OWNERSHIP */
+	/**
+	 * Releases the buffer if this reader owns it.
+	 */
+	public void release() {
+
+		if (owned) {
+			owned = false;
+			buf.release();
+		}
+	}
+
+	/**
+	 * Rejects lengths that cannot fit in what is left of the packet before anything is allocated for them.
+	 */
+	private int checkLength(int length, int minElementSize) {
+
+		if (length < 0 || (long) length * minElementSize > buf.readableBytes()) {
+			throw new IndexOutOfBoundsException("length " + length + " exceeds readable bytes " + buf.readableBytes());
+		}
+		return length;
+	}
+
+}
@@ -0,0 +1,104 @@
+package cofh.lib.network;
+
+import java.util.Arrays;
+
+/**
+ * A fixed-size cache of decoded strings keyed by their encoded bytes, for {@link ByteBufHelper#readString(io.netty.buffer.ByteBuf, StringCache)}.
+ * Strings that recur in every packet, such as channel and frequency names, are then decoded once and shared, and a hit allocates nothing.
+ * <p>
+ * Each string has one slot, picked by the hash of its bytes, and a new string replaces whatever was there; the cache never grows. Entries are immutable,
+ * so one cache may be shared by threads without locking.
+ */
+public final class StringCache {
+
+	private static final class Entry {
+
+		final int hash;
+		final byte[] key;
+		final String value;
+
+		Entry(int hash, byte[] key, String value) {
+
+			this.hash = hash;
+			this.key = key;
+			this.value = value;
+		}
+	}
+
+	private final Entry[] table;
+	private final int mask;
+	private final int maxLength;
+
+	public StringCache() {
+
+		this(256, 64);
+	}
+
+	/**
+	 * @param size
+	 *            Number of slots; rounded up to a power of two.
+	 * @param maxLength
+	 *            Longest encoded string, in bytes, that will be cached.
+	 */
+	public StringCache(int size, int maxLength) {
+
+		int n = 1;
+		while (n < size) {
+			n <<= 1;
+		}
+		table = new Entry[n];
+		mask = n - 1;
+		this.maxLength = maxLength;
+	}
+
+	/**
+	 * @return The cached string encoded as <code>len</code> bytes of <code>b</code> from <code>off</code>, or null.
+	 */
+	public String get(byte[] b, int off, int len) {
+
+		if (len > maxLength) {
+			return null;
+		}
+		int hash = hash(b, off, len);
+		Entry e = table[hash & mask];
+		if (e != null && e.hash == hash && e.key.length == len && equals(e.key, b, off, len)) {
+			return e.value;
+		}
+		return null;
+	}
+
+	public void put(byte[] b, int off, int len, String value) {
+
+		if (len > maxLength) {
+			return;
+		}
+		int hash = hash(b, off, len);
+		table[hash & mask] = new Entry(hash, Arrays.copyOfRange(b, off, off + len), value);
+	}
+
+	public void clear() {
+
+		Arrays.fill(table, null);
+	}
+
+	private static int hash(byte[] b, int off, int len) {
+
+		int h = len;
+		for (int i = off, e = off + len; i < e; ++i) {
+			h = 31 * h + b[i];
+		}
+		// spread the high bits down, as the slot is taken from the low bits
+		return h ^ (h >>> 16);
+	}
+
+	private static boolean equals(byte[] key, byte[] b, int off, int len) {
+
+		for (int i = 0; i < len; ++i) {
+			if (key[i] != b[off + i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+}
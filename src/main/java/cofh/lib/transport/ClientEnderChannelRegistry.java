@@ -1,21 +1,23 @@
 package cofh.lib.transport;
 
 import cofh.lib.network.ByteBufHelper;
-
-import gnu.trove.map.hash.TIntObjectHashMap;
+import cofh.lib.network.StringCache;
 
 import io.netty.buffer.ByteBuf;
 
-import java.util.ArrayList;
-import java.util.Collections;
+import java.util.Arrays;
 import java.util.List;
 
 public class ClientEnderChannelRegistry implements IEnderChannelRegistry {
 
-	private TIntObjectHashMap<String> channel = new TIntObjectHashMap<String>();
-	private ArrayList<Frequency> list = new ArrayList<Frequency>();
+	private FrequencyIndex index = new FrequencyIndex();
+	private Frequency[] buffer = new Frequency[0];
 	private int modCount;
+	private int syncEpoch;
+	private int syncVersion = -1;
 	protected String hostedChannel = "";
+	/* channel and frequency names repeat in every sync */
+	private final StringCache names = new StringCache();
 
 	public ClientEnderChannelRegistry() {
 
@@ -24,17 +26,67 @@ public class ClientEnderChannelRegistry implements IEnderChannelRegistry {
 	public void readFrequencyData(ByteBuf data) {
 
 		++modCount;
-		channel.clear();
-		list.clear();
+		syncVersion = -1;
 		int size = ByteBufHelper.readVarInt(data);
-		hostedChannel = ByteBufHelper.readString(data);
+		hostedChannel = ByteBufHelper.readString(data, names);
+		readAll(data, size);
+	}
+
+	/**
+	 * Applies a ByteBuf from {@link ServerEnderChannelRegistry#getFrequencyUpdate(String, int, int)}.
+	 */
+	public void readFrequencyUpdate(ByteBuf data) {
+
+		++modCount;
+		syncEpoch = ByteBufHelper.readVarInt(data);
+		syncVersion = ByteBufHelper.readVarInt(data);
+		boolean full = data.readByte() != 0;
+		String newChannel = ByteBufHelper.readString(data, names);
+		int size = ByteBufHelper.readVarInt(data);
+		if (full || !newChannel.equals(hostedChannel)) {
+			hostedChannel = newChannel;
+			readAll(data, size);
+			return;
+		}
+		for (int i = 0; i < size; ++i) {
+			int freq = ByteBufHelper.readVarInt(data);
+			String name = ByteBufHelper.readString(data, names);
+			if (name == null) {
+				index.remove(freq);
+			} else {
+				index.put(freq, name);
+			}
+		}
+	}
+
+	private void readAll(ByteBuf data, int size) {
+
+		if (buffer.length < size) {
+			buffer = new Frequency[size];
+		}
+		int count = 0;
 		for (int i = 0; i < size; ++i) {
 			int freq = ByteBufHelper.readVarInt(data);
-			String name = ByteBufHelper.readString(data);
-			channel.put(freq, name);
-			list.add(new Frequency(freq, name));
+			String name = ByteBufHelper.readString(data, names);
+			if (name != null) {
+				buffer[count++] = new Frequency(freq, name);
+			}
 		}
-		Collections.sort(list);
+		index.set(buffer, count);
+		Arrays.fill(buffer, 0, count, null);
+	}
+
+	public int getSyncEpoch() {
+
+		return syncEpoch;
+	}
+
+	/**
+	 * @return The version to request the next update of <code>channel</code> from, or -1 if it needs a full update.
+	 */
+	public int getSyncVersion(String channel) {
+
+		return hostedChannel.equals(channel) ? syncVersion : -1;
 	}
 
 	public String getChannelName() {
@@ -42,39 +94,49 @@ public class ClientEnderChannelRegistry implements IEnderChannelRegistry {
 		return hostedChannel;
 	}
 
+	/**
+	 * @return An unmodifiable view of the hosted channel's frequencies, in frequency order. It reflects later updates.
+	 */
 	@Override
 	public List<Frequency> getFrequencyList(String _) {
 
-		return list;
+		return index.asList();
+	}
+
+	/**
+	 * @return An unmodifiable view of the hosted channel's frequencies from <code>from</code> (inclusive) to <code>to</code> (exclusive).
+	 */
+	public List<Frequency> getFrequencyRange(int from, int to) {
+
+		return index.getRange(from, to);
+	}
+
+	/**
+	 * @return An unmodifiable view of the hosted channel's frequencies whose names start with <code>prefix</code>, ignoring case, in name order.
+	 */
+	public List<Frequency> findFrequencies(String prefix) {
+
+		return index.getByNamePrefix(prefix);
 	}
 
 	@Override
 	public String getFrequency(String _, int freq) {
 
-		return channel.get(freq);
+		return index.get(freq);
 	}
 
 	@Override
 	public String setFrequency(String _, int freq, String name) {
 
 		++modCount;
-		Frequency f = new Frequency(freq, name);
-		int i = list.indexOf(f);
-		if (i < 0) {
-			list.add(f);
-			Collections.sort(list);
-		} else {
-			list.set(i, f);
-		}
-		return channel.put(freq, name);
+		return name == null ? index.remove(freq) : index.put(freq, name);
 	}
 
 	@Override
 	public String removeFrequency(String _, int freq) {
 
 		++modCount;
-		list.remove(new Frequency(freq, ""));
-		return channel.remove(freq);
+		return index.remove(freq);
 	}
 
 	@Override
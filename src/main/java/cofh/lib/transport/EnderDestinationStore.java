@@ -0,0 +1,278 @@
+package cofh.lib.transport;
+
+import cpw.mods.fml.common.FMLLog;
+
+import gnu.trove.list.array.TIntArrayList;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.reflect.Method;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+
+import org.apache.logging.log4j.Level;
+
+/**
+ * Memory-mapped binary store of Ender destinations.
+ * <p>
+ * <b>Format:</b> a 16 byte header (<code>int</code> magic, <code>int</code> version, <code>int</code> record count, <code>int</code> reserved) followed by
+ * fixed 24 byte records of <code>int</code> channel id, frequency, dimension, x, y, z. A channel id of -1 marks a free record. Channel names live in a
+ * sidecar <code>.channels</code> file of <code>writeUTF</code> strings, appended to as channels are added; a channel's id is its position in that file.
+ * <p>
+ * Adding or removing a destination writes only its own record, and loading is a linear scan of the mapped file.
+ */
+public final class EnderDestinationStore {
+
+	public static interface IRecordVisitor {
+
+		public void visit(int record, int channelId, int frequency, int dimension, int x, int y, int z);
+	}
+
+	private static final int MAGIC = 0x436F4645; // "CoFE"
+	private static final int VERSION = 1;
+	private static final int HEADER_SIZE = 16;
+	private static final int RECORD_SIZE = 24;
+	private static final int COUNT_OFFSET = 8;
+	private static final int FREE = -1;
+
+	private final File channelFile;
+	private final RandomAccessFile file;
+	private final FileChannel channel;
+	private final boolean created;
+	private MappedByteBuffer buffer;
+	private int capacity;
+	private int count;
+
+	private final ArrayList<String> channelNames = new ArrayList<String>();
+	private final TIntArrayList freeRecords = new TIntArrayList();
+
+	public EnderDestinationStore(File dataFile, File channelFile) throws IOException {
+
+		this.channelFile = channelFile;
+		created = !dataFile.exists() || dataFile.length() < HEADER_SIZE;
+		file = new RandomAccessFile(dataFile, "rw");
+		channel = file.getChannel();
+
+		if (created) {
+			map(256);
+			buffer.putInt(0, MAGIC);
+			buffer.putInt(4, VERSION);
+			buffer.putInt(COUNT_OFFSET, 0);
+			channelFile.delete();
+		} else {
+			map((int) ((file.length() - HEADER_SIZE) / RECORD_SIZE));
+			if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+				throw new IOException("Unrecognized Ender destination store " + dataFile.getAbsolutePath());
+			}
+			count = Math.min(buffer.getInt(COUNT_OFFSET), capacity);
+			for (int i = 0; i < count; ++i) {
+				if (buffer.getInt(offset(i)) == FREE) {
+					freeRecords.add(i);
+				}
+			}
+			readChannels();
+		}
+	}
+
+	/**
+	 * @return True if the store did not exist before and should be filled by an import.
+	 */
+	public boolean isNew() {
+
+		return created;
+	}
+
+	/**
+	 * @return The number of records in use or free; an upper bound on the number of destinations.
+	 */
+	public int getRecordCount() {
+
+		return count;
+	}
+
+	public int getChannelCount() {
+
+		return channelNames.size();
+	}
+
+	public String getChannelName(int channelId) {
+
+		return channelNames.get(channelId);
+	}
+
+	/**
+	 * Appends a channel name and returns its id.
+	 */
+	public int addChannel(String name) {
+
+		int id = channelNames.size();
+		channelNames.add(name);
+		try {
+			DataOutputStream out = new DataOutputStream(new FileOutputStream(channelFile, true));
+			try {
+				out.writeUTF(name);
+			} finally {
+				out.close();
+			}
+		} catch (IOException e) {
+			FMLLog.log(Level.ERROR, e, "Failed to save Ender channel %s", name);
+		}
+		return id;
+	}
+
+	/**
+	 * Writes a destination to a free record.
+	 *
+	 * @return The record index, to be passed to {@link #remove(int)}.
+	 */
+	public int add(int channelId, int frequency, int dimension, int x, int y, int z) {
+
+		int record;
+		int offset;
+		if (!freeRecords.isEmpty()) {
+			record = freeRecords.removeAt(freeRecords.size() - 1);
+			offset = offset(record);
+		} else {
+			if (count == capacity) {
+				map(capacity * 2);
+			}
+			record = count;
+			offset = offset(record);
+			// the grown area is zero-filled and 0 is a valid channel id; mark the record free before it is counted
+			buffer.putInt(offset, FREE);
+			buffer.putInt(COUNT_OFFSET, ++count);
+		}
+		// channel id last, so a torn write leaves the record free
+		buffer.putInt(offset + 4, frequency);
+		buffer.putInt(offset + 8, dimension);
+		buffer.putInt(offset + 12, x);
+		buffer.putInt(offset + 16, y);
+		buffer.putInt(offset + 20, z);
+		buffer.putInt(offset, channelId);
+		return record;
+	}
+
+	public void remove(int record) {
+
+		if (record < 0 || record >= count || buffer.getInt(offset(record)) == FREE) {
+			return;
+		}
+		buffer.putInt(offset(record), FREE);
+		freeRecords.add(record);
+	}
+
+	public void visit(IRecordVisitor visitor) {
+
+		for (int i = 0; i < count; ++i) {
+			int offset = offset(i);
+			int channelId = buffer.getInt(offset);
+			if (channelId == FREE) {
+				continue;
+			}
+			if (channelId >= channelNames.size()) {
+				// its channel name was never saved, drop it
+				remove(i);
+				continue;
+			}
+			visitor.visit(i, channelId, buffer.getInt(offset + 4), buffer.getInt(offset + 8), buffer.getInt(offset + 12), buffer.getInt(offset + 16),
+				buffer.getInt(offset + 20));
+		}
+	}
+
+	/**
+	 * Flushes modified records to disk.
+	 */
+	public void force() {
+
+		buffer.force();
+	}
+
+	/**
+	 * Flushes and unmaps the store and closes its file. The store must not be used afterwards.
+	 */
+	public void close() throws IOException {
+
+		if (buffer == null) {
+			return;
+		}
+		buffer.force();
+		unmap(buffer);
+		buffer = null;
+		channel.close();
+		file.close();
+	}
+
+	private static int offset(int record) {
+
+		return HEADER_SIZE + record * RECORD_SIZE;
+	}
+
+	private void map(int records) {
+
+		MappedByteBuffer old = buffer;
+		try {
+			capacity = Math.max(records, 16);
+			buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, offset(capacity));
+		} catch (IOException e) {
+			throw new RuntimeException("Failed to map Ender destination store", e);
+		}
+		if (old != null) {
+			old.force();
+			unmap(old);
+		}
+	}
+
+	/**
+	 * Releases a mapping now rather than when the buffer is collected; until then the file stays locked on Windows. There is no public API for this,
+	 * so it is done through the buffer's cleaner where the JVM has one.
+	 */
+	private static void unmap(MappedByteBuffer buffer) {
+
+		try {
+			Method getCleaner = buffer.getClass().getMethod("cleaner");
+			getCleaner.setAccessible(true);
+			Object cleaner = getCleaner.invoke(buffer);
+			if (cleaner != null) {
+				cleaner.getClass().getMethod("clean").invoke(cleaner);
+			}
+		} catch (Throwable t) {
+			// left to the garbage collector
+		}
+	}
+
+	private void readChannels() throws IOException {
+
+		if (!channelFile.exists()) {
+			return;
+		}
+		RandomAccessFile names = new RandomAccessFile(channelFile, "rw");
+		try {
+			byte[] data = new byte[(int) names.length()];
+			names.readFully(data);
+			ByteArrayInputStream bytes = new ByteArrayInputStream(data);
+			DataInputStream in = new DataInputStream(bytes);
+			int valid = 0;
+			try {
+				for (;;) {
+					channelNames.add(in.readUTF());
+					valid = data.length - bytes.available();
+				}
+			} catch (EOFException e) {
+				if (valid < data.length) {
+					// a partially written final name; drop it so later appends stay readable
+					names.setLength(valid);
+				}
+			}
+		} finally {
+			names.close();
+		}
+	}
+
+}
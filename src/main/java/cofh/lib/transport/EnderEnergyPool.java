@@ -0,0 +1,302 @@
+package cofh.lib.transport;
+
+import cofh.api.transport.IEnderEnergyHandler;
+
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Buffers the energy sent on a single Ender frequency during a tick and splits it between the receivers once, in {@link #settle(List)}.
+ * <p>
+ * Senders only {@link #deposit(List, IEnderEnergyHandler, int, boolean)}, so a tick costs O(senders + receivers) calls instead of every sender offering
+ * energy to every receiver. Deposits are limited by the demand the receivers have at the first deposit after a settle, so the pool only takes what it
+ * can deliver; anything a settle could not deliver stays buffered for the next one. Energy is never dropped.
+ * <p>
+ * A handler that is both sender and receiver never gets its own energy back. The pool remembers how much of its buffer each sender put in, a sender may
+ * only deposit what the other receivers want, and a receiver is only given energy other senders deposited.
+ * <p>
+ * The split is deterministic for a given receiver order. Any remainder that cannot be divided evenly goes one unit at a time to receivers starting from an
+ * offset that advances every settle, so the head of the list is not favored.
+ * <p>
+ * Not thread safe; deposit and settle from the server thread.
+ */
+public final class EnderEnergyPool {
+
+	public static enum Mode {
+		/**
+		 * Every receiver gets an equal share; shares that a receiver cannot use are spread across the others.
+		 */
+		ROUND_ROBIN,
+		/**
+		 * Every receiver gets a share proportional to its demand.
+		 */
+		PROPORTIONAL
+	}
+
+	private final Mode mode;
+
+	private int stored;
+	private int limit;
+	private boolean measured;
+	private int cursor;
+
+	private int[] demand = new int[8];
+	private int[] give = new int[8];
+	private long[] order = new long[8];
+
+	/* the part of stored each known sender deposited, and their sum; the rest came from unknown senders */
+	private final IdentityHashMap<IEnderEnergyHandler, int[]> contributions = new IdentityHashMap<IEnderEnergyHandler, int[]>();
+	private int contributed;
+
+	public EnderEnergyPool() {
+
+		this(Mode.ROUND_ROBIN);
+	}
+
+	public EnderEnergyPool(Mode mode) {
+
+		this.mode = mode;
+	}
+
+	public Mode getMode() {
+
+		return mode;
+	}
+
+	/**
+	 * @return The energy currently buffered for the next settle.
+	 */
+	public int getEnergyStored() {
+
+		return stored;
+	}
+
+	/**
+	 * Adds energy to the pool from an unknown sender.
+	 */
+	public int deposit(List<? extends IEnderEnergyHandler> receivers, int energy, boolean simulate) {
+
+		return deposit(receivers, null, energy, simulate);
+	}
+
+	/**
+	 * Adds energy to the pool.
+	 *
+	 * @param receivers
+	 *            The receivers on this frequency; their demand is measured on the first deposit after a settle.
+	 * @param sender
+	 *            The handler depositing; it will not be given this energy. May be null.
+	 * @param energy
+	 *            Amount of energy offered.
+	 * @param simulate
+	 *            If TRUE, the deposit will only be simulated.
+	 * @return Amount of energy that was (or would have been) accepted.
+	 */
+	public int deposit(List<? extends IEnderEnergyHandler> receivers, IEnderEnergyHandler sender, int energy, boolean simulate) {
+
+		if (!measured) {
+			limit = measureDemand(receivers);
+			measured = true;
+		}
+		int accepted = Math.min(energy, limit - stored);
+		int[] mine = null;
+		if (sender != null) {
+			// only the other receivers can take this energy, and they may already be owed what the sender put in before
+			mine = contributions.get(sender);
+			accepted = Math.min(accepted, limit - demandOf(sender) - (mine == null ? 0 : mine[0]));
+		}
+		if (accepted <= 0) {
+			return 0;
+		}
+		if (!simulate) {
+			stored += accepted;
+			if (sender != null) {
+				if (mine == null) {
+					contributions.put(sender, new int[] { accepted });
+				} else {
+					mine[0] += accepted;
+				}
+				contributed += accepted;
+			}
+		}
+		return accepted;
+	}
+
+	/**
+	 * Distributes the buffered energy between <code>receivers</code>, never giving a sender its own energy. Energy that could not be delivered stays
+	 * buffered.
+	 *
+	 * @return Amount of energy delivered.
+	 */
+	public int settle(List<? extends IEnderEnergyHandler> receivers) {
+
+		int n = receivers == null ? 0 : receivers.size();
+		// receivers use their energy between ticks, so the next deposit measures again
+		measured = false;
+		if (n == 0) {
+			return 0;
+		}
+		ensureCapacity(n);
+
+		long available = 0;
+		for (int i = 0; i < n; ++i) {
+			IEnderEnergyHandler receiver = receivers.get(i);
+			demand[i] = Math.min(demandOf(receiver), stored - own(receiver));
+			available += demand[i];
+		}
+
+		int delivered = 0;
+		if (stored > 0 && available > 0) {
+			if (stored >= available) {
+				System.arraycopy(demand, 0, give, 0, n);
+			} else if (mode == Mode.PROPORTIONAL) {
+				splitProportional(n, available);
+			} else {
+				splitEven(n);
+			}
+			for (int i = 0; i < n; ++i) {
+				IEnderEnergyHandler receiver = receivers.get(i);
+				// earlier receivers may have used up the energy of other senders
+				int g = Math.min(give[i], stored - own(receiver));
+				if (g > 0) {
+					int left = receiver.receiveEnergy(g, false);
+					g -= Math.max(0, Math.min(left, g));
+					take(receiver, g);
+					delivered += g;
+				}
+			}
+		}
+		cursor = cursor + 1 < n ? cursor + 1 : 0;
+		return delivered;
+	}
+
+	/**
+	 * @return The part of the buffer <code>handler</code> deposited.
+	 */
+	private int own(IEnderEnergyHandler handler) {
+
+		if (contributed == 0) {
+			return 0;
+		}
+		int[] c = contributions.get(handler);
+		return c == null ? 0 : c[0];
+	}
+
+	/**
+	 * Removes <code>energy</code> delivered to <code>receiver</code> from the buffer: from unknown senders first, then from senders other than the
+	 * receiver.
+	 */
+	private void take(IEnderEnergyHandler receiver, int energy) {
+
+		int rest = energy - Math.min(energy, stored - contributed);
+		stored -= energy;
+		if (rest <= 0) {
+			return;
+		}
+		contributed -= rest;
+		for (Iterator<Map.Entry<IEnderEnergyHandler, int[]>> i = contributions.entrySet().iterator(); i.hasNext() && rest > 0;) {
+			Map.Entry<IEnderEnergyHandler, int[]> e = i.next();
+			if (e.getKey() == receiver) {
+				continue;
+			}
+			int[] c = e.getValue();
+			int k = Math.min(c[0], rest);
+			c[0] -= k;
+			rest -= k;
+			if (c[0] == 0) {
+				i.remove();
+			}
+		}
+	}
+
+	private int measureDemand(List<? extends IEnderEnergyHandler> receivers) {
+
+		long totalDemand = 0;
+		for (int i = 0, n = receivers == null ? 0 : receivers.size(); i < n; ++i) {
+			totalDemand += demandOf(receivers.get(i));
+		}
+		return (int) Math.min(totalDemand, Integer.MAX_VALUE);
+	}
+
+	private static int demandOf(IEnderEnergyHandler receiver) {
+
+		if (!receiver.canReceiveEnergy()) {
+			return 0;
+		}
+		int left = receiver.receiveEnergy(Integer.MAX_VALUE, true);
+		return left < 0 ? 0 : Integer.MAX_VALUE - left;
+	}
+
+	/**
+	 * Water-filling split: receivers are served from the smallest demand up, each taking at most an even share of what is left.
+	 */
+	private void splitEven(int n) {
+
+		long[] order = this.order;
+		for (int i = 0; i < n; ++i) {
+			// ties are broken by list position, keeping the split deterministic
+			order[i] = (long) demand[i] << 32 | i;
+		}
+		Arrays.sort(order, 0, n);
+
+		int remaining = stored;
+		for (int k = 0; k < n; ++k) {
+			int i = (int) order[k];
+			int share = remaining / (n - k);
+			if (demand[i] >= share) {
+				// every receiver from here on wants at least this much
+				for (int j = k; j < n; ++j) {
+					give[(int) order[j]] = share;
+				}
+				remaining -= share * (n - k);
+				break;
+			}
+			give[i] = demand[i];
+			remaining -= demand[i];
+		}
+		spreadRemainder(n, remaining);
+	}
+
+	private void splitProportional(int n, long totalDemand) {
+
+		int remaining = stored;
+		for (int i = 0; i < n; ++i) {
+			int g = (int) (stored * (long) demand[i] / totalDemand);
+			give[i] = g;
+			remaining -= g;
+		}
+		spreadRemainder(n, remaining);
+	}
+
+	private void spreadRemainder(int n, int remaining) {
+
+		int start = cursor < n ? cursor : 0;
+		while (remaining > 0) {
+			int before = remaining;
+			for (int j = 0; j < n && remaining > 0; ++j) {
+				int i = start + j < n ? start + j : start + j - n;
+				if (give[i] < demand[i]) {
+					++give[i];
+					--remaining;
+				}
+			}
+			if (remaining == before) {
+				break;
+			}
+		}
+	}
+
+	private void ensureCapacity(int n) {
+
+		if (demand.length < n) {
+			int size = Math.max(n, demand.length + (demand.length >> 1));
+			demand = new int[size];
+			give = new int[size];
+			order = new long[size];
+		}
+	}
+
+}
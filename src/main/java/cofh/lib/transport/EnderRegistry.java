@@ -5,63 +5,146 @@ import cofh.api.transport.IEnderDestination;
 import cofh.api.transport.IEnderEnergyHandler;
 import cofh.api.transport.IEnderFluidHandler;
 import cofh.api.transport.IEnderItemHandler;
-import cofh.lib.util.ArrayHashList;
+import cofh.lib.util.OpenArrayHashList;
+import cofh.lib.util.SnapshotArrayList;
+
+import cpw.mods.fml.common.FMLLog;
+import cpw.mods.fml.common.eventhandler.SubscribeEvent;
 
 import gnu.trove.map.hash.TIntObjectHashMap;
+import gnu.trove.map.hash.TLongObjectHashMap;
 
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.BitSet;
-import java.util.HashMap;
 import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
 
 import net.minecraft.tileentity.TileEntity;
+import net.minecraft.world.World;
 import net.minecraft.world.WorldServer;
+import net.minecraft.world.chunk.Chunk;
 import net.minecraftforge.common.DimensionManager;
 import net.minecraftforge.common.config.ConfigCategory;
 import net.minecraftforge.common.config.Configuration;
 import net.minecraftforge.common.config.Property;
-
+import net.minecraftforge.event.world.ChunkEvent;
+import net.minecraftforge.event.world.WorldEvent;
+
+import org.apache.logging.log4j.Level;
+
+/**
+ * Server-side registry of everything attuned to an Ender channel.
+ * <p>
+ * Register an instance on <code>MinecraftForge.EVENT_BUS</code> so it can follow chunk loads and unloads; destinations in unloaded chunks are then answered
+ * from a cache instead of being looked up in the world on every query. Destination tiles should call {@link #invalidateDestination(IEnderDestination)}
+ * when they are invalidated or unloaded. The owning mod must call {@link #close()} when the server stops.
+ */
 public final class EnderRegistry {
 
-	private HashMap<String, TIntObjectHashMap<ArrayHashList<IEnderItemHandler>>> inputItem;
-	private HashMap<String, TIntObjectHashMap<ArrayHashList<IEnderFluidHandler>>> inputFluid;
-	private HashMap<String, TIntObjectHashMap<ArrayHashList<IEnderEnergyHandler>>> inputEnergy;
+	private static final int INPUT_ITEM = 0;
+	private static final int INPUT_FLUID = 1;
+	private static final int INPUT_ENERGY = 2;
+	private static final int OUTPUT_ITEM = 3;
+	private static final int OUTPUT_FLUID = 4;
+	private static final int OUTPUT_ENERGY = 5;
+	private static final int HANDLER_TYPES = 6;
+	private static final Object[] NO_HANDLERS = new Object[0];
+
+	/**
+	 * Channel strings are interned to small ids once; every (channel, frequency) pair then resolves with a single probe of <code>slots</code>, or of
+	 * <code>sharedSlots</code> in concurrent mode.
+	 */
+	private final ConcurrentHashMap<String, Integer> channelIds;
+	private final TLongObjectHashMap<EnderSlot> slots;
+	private final ConcurrentHashMap<Long, EnderSlot> sharedSlots;
+	private ArrayList<String> channelNames;
+	private ArrayList<BitSet> usedTeleports;
+	private ArrayList<EnderSlot> activeEnergyPools;
+
+	/**
+	 * Destinations by dimension and chunk, so chunk events can update their cached state.
+	 */
+	private TIntObjectHashMap<TLongObjectHashMap<ArrayList<EnderDestination>>> chunkIndex;
+	private boolean chunkEvents;
+
+	private EnderDestinationStore store;
+	private final boolean concurrent;
 
-	private HashMap<String, TIntObjectHashMap<ArrayHashList<IEnderItemHandler>>> outputItem;
-	private HashMap<String, TIntObjectHashMap<ArrayHashList<IEnderFluidHandler>>> outputFluid;
-	private HashMap<String, TIntObjectHashMap<ArrayHashList<IEnderEnergyHandler>>> outputEnergy;
-
-	private HashMap<String, TIntObjectHashMap<EnderDestination>> outputTeleport;
-	private HashMap<String, BitSet> usedTeleports;
+	public EnderRegistry(Configuration config) {
 
-	private Configuration linkConf;
+		this(config, false);
+	}
 
-	public EnderRegistry(Configuration config) {
+	/**
+	 * @param concurrent
+	 *            If true, the per-frequency handler lists are published as immutable snapshots (see {@link SnapshotArrayList}), slots are kept in a
+	 *            concurrent map, and the handler lookups may be called from any thread while the server thread adds and removes handlers. Readers that
+	 *            walk a list should take its snapshot once, e.g. {@link #getLinkedItemOutputSnapshot(IEnderItemHandler)}. Destinations are still only
+	 *            safe to use from the server thread.
+	 */
+	public EnderRegistry(Configuration config, boolean concurrent) {
+
+		this.concurrent = concurrent;
+
+		channelIds = new ConcurrentHashMap<String, Integer>();
+		slots = concurrent ? null : new TLongObjectHashMap<EnderSlot>();
+		sharedSlots = concurrent ? new ConcurrentHashMap<Long, EnderSlot>() : null;
+		channelNames = new ArrayList<String>();
+		usedTeleports = new ArrayList<BitSet>();
+		activeEnergyPools = new ArrayList<EnderSlot>();
+		chunkIndex = new TIntObjectHashMap<TLongObjectHashMap<ArrayList<EnderDestination>>>();
+
+		// Configuration.toString() is the absolute path of its file
+		String path = config.toString();
+		if (path.endsWith(".cfg")) {
+			path = path.substring(0, path.length() - 4);
+		}
+		try {
+			store = new EnderDestinationStore(new File(path + ".dat"), new File(path + ".channels"));
+		} catch (IOException e) {
+			throw new RuntimeException("Failed to open Ender destination store " + path + ".dat", e);
+		}
+		if (store.isNew()) {
+			// the configuration is only read here; the store holds the destinations from now on
+			importConfig(config);
+		} else {
+			load();
+		}
+	}
 
-		inputItem = new HashMap<String, TIntObjectHashMap<ArrayHashList<IEnderItemHandler>>>();
-		inputFluid = new HashMap<String, TIntObjectHashMap<ArrayHashList<IEnderFluidHandler>>>();
-		inputEnergy = new HashMap<String, TIntObjectHashMap<ArrayHashList<IEnderEnergyHandler>>>();
+	private void load() {
 
-		outputItem = new HashMap<String, TIntObjectHashMap<ArrayHashList<IEnderItemHandler>>>();
-		outputFluid = new HashMap<String, TIntObjectHashMap<ArrayHashList<IEnderFluidHandler>>>();
-		outputEnergy = new HashMap<String, TIntObjectHashMap<ArrayHashList<IEnderEnergyHandler>>>();
+		for (int i = 0, e = store.getChannelCount(); i < e; ++i) {
+			internChannel(store.getChannelName(i));
+		}
+		if (!concurrent) {
+			slots.ensureCapacity(store.getRecordCount());
+		}
+		store.visit(new EnderDestinationStore.IRecordVisitor() {
 
-		outputTeleport = new HashMap<String, TIntObjectHashMap<EnderDestination>>();
-		usedTeleports = new HashMap<String, BitSet>();
+			@Override
+			public void visit(int record, int channelId, int frequency, int dimension, int x, int y, int z) {
 
-		linkConf = config;
-		load();
+				EnderSlot slot = getOrCreateSlot(channelId, frequency);
+				slot.destination = new EnderDestination(channelNames.get(channelId), frequency, x, y, z, dimension);
+				slot.destinationRecord = record;
+				track(slot.destination);
+				usedTeleports.get(channelId).set(frequency);
+			}
+		});
 	}
 
-	private void load() {
+	/**
+	 * Migrates destinations from the <code>dimension@x,y,z</code> strings of the link configuration into the binary store.
+	 */
+	private void importConfig(Configuration linkConf) {
 
 		for (String channel : linkConf.getCategoryNames()) {
 			ConfigCategory category = linkConf.getCategory(channel);
-			TIntObjectHashMap<EnderDestination> map = outputTeleport.get(channel);
-			BitSet set = usedTeleports.get(channel);
-			if (map == null) {
-				outputTeleport.put(channel, map = new TIntObjectHashMap<EnderDestination>());
-				usedTeleports.put(channel, set = new BitSet());
-			}
+			int id = internChannel(channel);
+			BitSet set = usedTeleports.get(id);
 			for (Property prop : category.values()) {
 				try {
 					int freq = Integer.parseInt(prop.getName());
@@ -78,8 +161,13 @@ public final class EnderRegistry {
 					x = Integer.parseInt(data[0]);
 					y = Integer.parseInt(data[1]);
 					z = Integer.parseInt(data[2]);
-					EnderDestination dest = new EnderDestination(x, y, z, dimension);
-					map.put(freq, dest);
+					EnderSlot slot = getOrCreateSlot(id, freq);
+					if (slot.destination != null) {
+						continue;
+					}
+					slot.destination = new EnderDestination(channel, freq, x, y, z, dimension);
+					slot.destinationRecord = store.add(id, freq, dimension, x, y, z);
+					track(slot.destination);
 					set.set(freq);
 				} catch (Throwable p) {
 				}
@@ -87,59 +175,206 @@ public final class EnderRegistry {
 		}
 	}
 
+	/**
+	 * Flushes changed destination records to disk.
+	 */
 	public void save() {
 
-		if (linkConf.hasChanged()) {
-			linkConf.save();
+		store.force();
+	}
+
+	/**
+	 * Saves; destinations are written as they change, so there is nothing further to wait for.
+	 */
+	public void saveAndFlush() {
+
+		save();
+	}
+
+	/**
+	 * Saves and closes the destination store, releasing its file. The owning mod must call this when the server stops; the registry cannot be used
+	 * afterwards.
+	 */
+	public void close() {
+
+		try {
+			store.close();
+		} catch (IOException e) {
+			FMLLog.log(Level.ERROR, e, "Failed to close Ender destination store");
 		}
 	}
 
-	private <T> T getElement(HashMap<String, TIntObjectHashMap<T>> map, IEnderAttuned theAttuned) {
+	private int channelId(String channel) {
 
-		TIntObjectHashMap<T> list = map.get(theAttuned.getChannelString());
-		if (list != null) {
-			return list.get(theAttuned.getFrequency());
+		Integer id = channelIds.get(channel);
+		return id == null ? -1 : id;
+	}
+
+	private static long slotKey(int channelId, int freq) {
+
+		// Trove hashes a long as (high ^ low); scramble the low word by channel so that (c, f) and (f, c) style pairs do not all collide
+		return (long) channelId << 32 | (freq ^ channelId * 0x9E3779B9) & 0xFFFFFFFFL;
+	}
+
+	private EnderSlot getSlot(String channel, int freq) {
+
+		int id = channelId(channel);
+		if (id < 0) {
+			return null;
+		}
+		return slot(slotKey(id, freq));
+	}
+
+	private EnderSlot slot(long key) {
+
+		return concurrent ? sharedSlots.get(key) : slots.get(key);
+	}
+
+	@SuppressWarnings("unchecked")
+	private <T> List<T> getElement(int type, IEnderAttuned theAttuned) {
+
+		EnderSlot slot = getSlot(theAttuned.getChannelString(), theAttuned.getFrequency());
+		if (slot != null) {
+			return (List<T>) slot.handlers[type];
 		}
 		return null;
 	}
 
 	public List<IEnderItemHandler> getLinkedItemInputs(IEnderItemHandler theAttuned) {
 
-		return getElement(inputItem, theAttuned);
+		return getElement(INPUT_ITEM, theAttuned);
 	}
 
 	public List<IEnderItemHandler> getLinkedItemOutputs(IEnderItemHandler theAttuned) {
 
-		return getElement(outputItem, theAttuned);
+		return getElement(OUTPUT_ITEM, theAttuned);
 	}
 
 	public List<IEnderFluidHandler> getLinkedFluidInputs(IEnderFluidHandler theAttuned) {
 
-		return getElement(inputFluid, theAttuned);
+		return getElement(INPUT_FLUID, theAttuned);
 	}
 
 	public List<IEnderFluidHandler> getLinkedFluidOutputs(IEnderFluidHandler theAttuned) {
 
-		return getElement(outputFluid, theAttuned);
+		return getElement(OUTPUT_FLUID, theAttuned);
 	}
 
 	public List<IEnderEnergyHandler> getLinkedEnergyInputs(IEnderEnergyHandler theAttuned) {
 
-		return getElement(inputEnergy, theAttuned);
+		return getElement(INPUT_ENERGY, theAttuned);
 	}
 
 	public List<IEnderEnergyHandler> getLinkedEnergyOutputs(IEnderEnergyHandler theAttuned) {
 
-		return getElement(outputEnergy, theAttuned);
+		return getElement(OUTPUT_ENERGY, theAttuned);
+	}
+
+	/**
+	 * @return The handlers of one kind linked to <code>theAttuned</code>, as an array the registry never modifies; empty if there are none. In concurrent
+	 *         mode this is the list's current {@link SnapshotArrayList#snapshot()} and allocates nothing; otherwise it is a copy.
+	 */
+	private Object[] getSnapshot(int type, IEnderAttuned theAttuned) {
+
+		EnderSlot slot = getSlot(theAttuned.getChannelString(), theAttuned.getFrequency());
+		List<?> list = slot == null ? null : slot.handlers[type];
+		if (list == null || list.isEmpty()) {
+			return NO_HANDLERS;
+		}
+		if (list instanceof SnapshotArrayList) {
+			return ((SnapshotArrayList<?>) list).snapshot();
+		}
+		return list.toArray();
+	}
+
+	/**
+	 * Same as {@link #getLinkedItemInputs(IEnderItemHandler)}, as an array of {@link IEnderItemHandler} that stays stable while it is read. See
+	 * {@link #EnderRegistry(Configuration, boolean)}.
+	 */
+	public Object[] getLinkedItemInputSnapshot(IEnderItemHandler theAttuned) {
+
+		return getSnapshot(INPUT_ITEM, theAttuned);
+	}
+
+	public Object[] getLinkedItemOutputSnapshot(IEnderItemHandler theAttuned) {
+
+		return getSnapshot(OUTPUT_ITEM, theAttuned);
+	}
+
+	public Object[] getLinkedFluidInputSnapshot(IEnderFluidHandler theAttuned) {
+
+		return getSnapshot(INPUT_FLUID, theAttuned);
+	}
+
+	public Object[] getLinkedFluidOutputSnapshot(IEnderFluidHandler theAttuned) {
+
+		return getSnapshot(OUTPUT_FLUID, theAttuned);
+	}
+
+	public Object[] getLinkedEnergyInputSnapshot(IEnderEnergyHandler theAttuned) {
+
+		return getSnapshot(INPUT_ENERGY, theAttuned);
+	}
+
+	public Object[] getLinkedEnergyOutputSnapshot(IEnderEnergyHandler theAttuned) {
+
+		return getSnapshot(OUTPUT_ENERGY, theAttuned);
+	}
+
+	/**
+	 * Offers energy to the receivers on <code>theAttuned</code>'s frequency through its {@link EnderEnergyPool}. The energy is delivered at the next
+	 * {@link #distributeEnergy()}.
+	 *
+	 * @return Amount of energy accepted (or that would have been accepted, if simulated).
+	 */
+	@SuppressWarnings("unchecked")
+	public int depositEnergy(IEnderEnergyHandler theAttuned, int energy, boolean simulate) {
+
+		EnderSlot slot = getSlot(theAttuned.getChannelString(), theAttuned.getFrequency());
+		if (slot == null || energy <= 0) {
+			return 0;
+		}
+		if (slot.energyPool == null) {
+			slot.energyPool = new EnderEnergyPool();
+		}
+		if (!slot.energyPoolActive && !simulate) {
+			slot.energyPoolActive = true;
+			activeEnergyPools.add(slot);
+		}
+		return slot.energyPool.deposit((List<IEnderEnergyHandler>) slot.handlers[OUTPUT_ENERGY], theAttuned, energy, simulate);
+	}
+
+	/**
+	 * Settles every energy pool that has been deposited into. Call once per tick from the server thread.
+	 */
+	@SuppressWarnings("unchecked")
+	public void distributeEnergy() {
+
+		ArrayList<EnderSlot> active = activeEnergyPools;
+		int kept = 0;
+		for (int i = 0, e = active.size(); i < e; ++i) {
+			EnderSlot slot = active.get(i);
+			List<IEnderEnergyHandler> receivers = (List<IEnderEnergyHandler>) slot.handlers[OUTPUT_ENERGY];
+			slot.energyPool.settle(receivers);
+			if (slot.energyPool.getEnergyStored() > 0 && receivers != null && !receivers.isEmpty()) {
+				active.set(kept++, slot);
+			} else {
+				// energy left without receivers waits in the pool until the next deposit wakes it
+				slot.energyPoolActive = false;
+			}
+		}
+		for (int i = active.size(); i-- > kept;) {
+			active.remove(i);
+		}
 	}
 
 	public int findFreeFrequency(String channel) {
 
-		BitSet set = usedTeleports.get(channel);
-		if (set == null) {
+		int id = channelId(channel);
+		if (id < 0) {
 			return 0;
 		}
-		return set.nextClearBit(0);
+		return usedTeleports.get(id).nextClearBit(0);
 	}
 
 	public boolean hasDestination(IEnderDestination theAttuned) {
@@ -149,15 +384,15 @@ public final class EnderRegistry {
 
 	public boolean hasDestination(IEnderDestination theAttuned, boolean to) {
 
-		String channel = theAttuned.getChannelString();
-		TIntObjectHashMap<EnderDestination> map = outputTeleport.get(channel);
-		if (map == null) {
+		int id = channelId(theAttuned.getChannelString());
+		if (id < 0) {
 			return false;
 		}
 		int freq = to ? theAttuned.getDestination() : theAttuned.getFrequency();
-		EnderDestination dest = map.get(freq);
+		EnderSlot slot = slot(slotKey(id, freq));
+		EnderDestination dest = slot == null ? null : slot.destination;
 		boolean r = dest == null ? false : dest.hasOutput();
-		usedTeleports.get(channel).set(freq, r);
+		usedTeleports.get(id).set(freq, r);
 		return r;
 	}
 
@@ -168,140 +403,207 @@ public final class EnderRegistry {
 
 	public IEnderDestination getDestination(IEnderDestination theAttuned, boolean requireLoaded) {
 
-		final String channel = theAttuned.getChannelString();
-		TIntObjectHashMap<EnderDestination> map = outputTeleport.get(channel);
-		if (map == null) {
+		EnderSlot slot = getSlot(theAttuned.getChannelString(), theAttuned.getDestination());
+		if (slot == null) {
 			return null;
 		}
-		final int frequency = theAttuned.getDestination();
-		final EnderDestination dest = map.get(frequency);
+		EnderDestination dest = slot.destination;
 		if (dest == null) {
 			return null;
 		}
-		IEnderDestination out = dest.getOutput(requireLoaded);
+		IEnderDestination out = dest.getOutput(requireLoaded, chunkEvents);
 		if (requireLoaded && out == null && !dest.isInvalid) {
-			return new IEnderDestination() {
-
-				@Override
-				public String getChannelString() {
-
-					return channel;
-				}
-
-				@Override
-				public int getFrequency() {
-
-					return frequency;
-				}
+			return dest.getPlaceholder();
+		}
+		return out;
+	}
 
-				@Override
-				public boolean setFrequency(int frequency) {
+	/**
+	 * Drops the cached tile of the destination <code>theAttuned</code> is registered as, so the next query looks it up again. Call when a destination
+	 * tile is invalidated or its chunk unloads.
+	 */
+	public void invalidateDestination(IEnderDestination theAttuned) {
 
-					return false;
-				}
+		EnderSlot slot = getSlot(theAttuned.getChannelString(), theAttuned.getFrequency());
+		EnderDestination dest = slot == null ? null : slot.destination;
+		if (dest != null && dest.output == theAttuned) {
+			dest.output = null;
+			dest.unloaded = false;
+		}
+	}
 
-				@Override
-				public boolean clearFrequency() {
+	/* EVENT HANDLERS */
+	@SubscribeEvent
+	public void onChunkLoad(ChunkEvent.Load evt) {
 
-					return false;
-				}
+		Chunk chunk = evt.getChunk();
+		ArrayList<EnderDestination> list = getTracked(evt.world, chunk.xPosition, chunk.zPosition);
+		if (list != null) {
+			for (int i = 0, e = list.size(); i < e; ++i) {
+				list.get(i).unloaded = false;
+			}
+		}
+	}
 
-				@Override
-				public boolean isNotValid() {
+	@SubscribeEvent
+	public void onChunkUnload(ChunkEvent.Unload evt) {
 
-					return true;
-				}
+		Chunk chunk = evt.getChunk();
+		ArrayList<EnderDestination> list = getTracked(evt.world, chunk.xPosition, chunk.zPosition);
+		if (list != null) {
+			for (int i = 0, e = list.size(); i < e; ++i) {
+				EnderDestination dest = list.get(i);
+				dest.output = null;
+				dest.unloaded = true;
+			}
+		}
+	}
 
-				@Override
-				public int x() {
+	@SubscribeEvent
+	public void onWorldUnload(WorldEvent.Unload evt) {
 
-					return dest.x;
+		if (evt.world.isRemote) {
+			return;
+		}
+		chunkEvents = true;
+		TLongObjectHashMap<ArrayList<EnderDestination>> chunks = chunkIndex.get(evt.world.provider.dimensionId);
+		if (chunks != null) {
+			for (ArrayList<EnderDestination> list : chunks.valueCollection()) {
+				for (int i = 0, e = list.size(); i < e; ++i) {
+					EnderDestination dest = list.get(i);
+					dest.output = null;
+					dest.unloaded = true;
 				}
+			}
+		}
+	}
 
-				@Override
-				public int y() {
+	/* HELPER FUNCTIONS */
+	private static long chunkKey(int chunkX, int chunkZ) {
 
-					return dest.y;
-				}
+		return (long) chunkX << 32 | chunkZ & 0xFFFFFFFFL;
+	}
 
-				@Override
-				public int z() {
+	private ArrayList<EnderDestination> getTracked(World world, int chunkX, int chunkZ) {
 
-					return dest.z;
-				}
+		if (world.isRemote) {
+			return null;
+		}
+		chunkEvents = true;
+		TLongObjectHashMap<ArrayList<EnderDestination>> chunks = chunkIndex.get(world.provider.dimensionId);
+		return chunks == null ? null : chunks.get(chunkKey(chunkX, chunkZ));
+	}
 
-				@Override
-				public int dimension() {
+	private void track(EnderDestination dest) {
 
-					return dest.dimension;
-				}
+		TLongObjectHashMap<ArrayList<EnderDestination>> chunks = chunkIndex.get(dest.dimension);
+		if (chunks == null) {
+			chunkIndex.put(dest.dimension, chunks = new TLongObjectHashMap<ArrayList<EnderDestination>>());
+		}
+		long key = chunkKey(dest.x >> 4, dest.z >> 4);
+		ArrayList<EnderDestination> list = chunks.get(key);
+		if (list == null) {
+			chunks.put(key, list = new ArrayList<EnderDestination>(2));
+		}
+		list.add(dest);
+	}
 
-				@Override
-				public int getDestination() {
+	private void untrack(EnderDestination dest) {
 
-					return -1;
-				}
+		TLongObjectHashMap<ArrayList<EnderDestination>> chunks = chunkIndex.get(dest.dimension);
+		if (chunks == null) {
+			return;
+		}
+		long key = chunkKey(dest.x >> 4, dest.z >> 4);
+		ArrayList<EnderDestination> list = chunks.get(key);
+		if (list == null) {
+			return;
+		}
+		for (int i = list.size(); i-- > 0;) {
+			if (list.get(i) == dest) {
+				list.remove(i);
+				break;
+			}
+		}
+		if (list.isEmpty()) {
+			chunks.remove(key);
+		}
+	}
 
-				@Override
-				public boolean setDestination(int frequency) {
+	private int internChannel(String channel) {
 
-					return false;
-				}
+		int id = channelId(channel);
+		if (id < 0) {
+			id = usedTeleports.size();
+			channelNames.add(channel);
+			usedTeleports.add(new BitSet());
+			if (store.getChannelCount() == id) {
+				store.addChannel(channel);
+			}
+			channelIds.put(channel, id);
+		}
+		return id;
+	}
 
-				@Override
-				public boolean clearDestination() {
+	private EnderSlot getOrCreateSlot(int channelId, int freq) {
+
+		long key = slotKey(channelId, freq);
+		EnderSlot slot = slot(key);
+		if (slot == null) {
+			slot = new EnderSlot(channelId, freq, concurrent);
+			if (concurrent) {
+				// only the server thread creates slots, so nothing can have been put meanwhile
+				sharedSlots.put(key, slot);
+			} else {
+				slots.put(key, slot);
+			}
+		}
+		return slot;
+	}
 
-					return false;
-				}
+	private EnderSlot getOrCreateSlot(String channel, int freq) {
 
-			};
-		}
-		return out;
+		return getOrCreateSlot(internChannel(channel), freq);
 	}
 
-	/* HELPER FUNCTIONS */
-	private <T extends IEnderAttuned> boolean addHandler(HashMap<String, TIntObjectHashMap<ArrayHashList<T>>> map, T theAttuned) {
+	@SuppressWarnings("unchecked")
+	private <T extends IEnderAttuned> boolean addHandler(int type, T theAttuned) {
 
-		String channel = theAttuned.getChannelString();
-		TIntObjectHashMap<ArrayHashList<T>> list = map.get(channel);
+		EnderSlot slot = getOrCreateSlot(theAttuned.getChannelString(), theAttuned.getFrequency());
+		List<T> list = (List<T>) slot.handlers[type];
 		if (list == null) {
-			map.put(channel, list = new TIntObjectHashMap<ArrayHashList<T>>());
-		}
-		int freq = theAttuned.getFrequency();
-		ArrayHashList<T> array = list.get(freq);
-		if (array == null) {
-			list.put(freq, array = new ArrayHashList<T>());
+			slot.handlers[type] = list = new OpenArrayHashList<T>();
 		}
-		return array.add(theAttuned);
+		return list.add(theAttuned);
 	}
 
 	public void addItemHandler(IEnderItemHandler theAttuned) {
 
 		if (theAttuned.canSendItems()) {
-			addHandler(inputItem, theAttuned);
+			addHandler(INPUT_ITEM, theAttuned);
 		}
 		if (theAttuned.canReceiveItems()) {
-			addHandler(outputItem, theAttuned);
+			addHandler(OUTPUT_ITEM, theAttuned);
 		}
 	}
 
 	public void addFluidHandler(IEnderFluidHandler theAttuned) {
 
 		if (theAttuned.canSendFluid()) {
-			addHandler(inputFluid, theAttuned);
+			addHandler(INPUT_FLUID, theAttuned);
 		}
 		if (theAttuned.canReceiveFluid()) {
-			addHandler(outputFluid, theAttuned);
+			addHandler(OUTPUT_FLUID, theAttuned);
 		}
 	}
 
 	public void addEnergyHandler(IEnderEnergyHandler theAttuned) {
 
 		if (theAttuned.canSendEnergy()) {
-			addHandler(inputEnergy, theAttuned);
+			addHandler(INPUT_ENERGY, theAttuned);
 		}
 		if (theAttuned.canReceiveEnergy()) {
-			addHandler(outputEnergy, theAttuned);
+			addHandler(OUTPUT_ENERGY, theAttuned);
 		}
 	}
 
@@ -309,68 +611,72 @@ public final class EnderRegistry {
 
 		if (!hasDestination(theAttuned, false)) {
 			String channel = theAttuned.getChannelString();
-			TIntObjectHashMap<EnderDestination> map = outputTeleport.get(channel);
-			BitSet set = usedTeleports.get(channel);
-			if (map == null) {
-				outputTeleport.put(channel, map = new TIntObjectHashMap<EnderDestination>());
-				usedTeleports.put(channel, set = new BitSet());
-			}
 			int freq = theAttuned.getFrequency();
-			EnderDestination dest = new EnderDestination(theAttuned);
-			map.put(freq, dest);
-			set.set(freq);
-			linkConf.get(channel, String.valueOf(freq), "").set(dest.toString());
+			EnderSlot slot = getOrCreateSlot(channel, freq);
+			EnderDestination dest = new EnderDestination(channel, freq, theAttuned);
+			int id = channelId(channel);
+			if (slot.destination != null) {
+				store.remove(slot.destinationRecord);
+				untrack(slot.destination);
+			}
+			slot.destination = dest;
+			slot.destinationRecord = store.add(id, freq, dest.dimension, dest.x, dest.y, dest.z);
+			track(dest);
+			usedTeleports.get(id).set(freq);
 		}
 	}
 
-	private <T> boolean removeHandler(HashMap<String, TIntObjectHashMap<ArrayHashList<T>>> map, IEnderAttuned theAttuned) {
+	private boolean removeHandler(int type, IEnderAttuned theAttuned) {
 
-		TIntObjectHashMap<ArrayHashList<T>> list = map.get(theAttuned.getChannelString());
-		if (list == null) {
+		EnderSlot slot = getSlot(theAttuned.getChannelString(), theAttuned.getFrequency());
+		if (slot == null) {
 			return false;
 		}
-		ArrayHashList<T> array = list.get(theAttuned.getFrequency());
-		if (array == null) {
+		List<?> list = slot.handlers[type];
+		if (list == null) {
 			return false;
 		}
-		return array.remove(theAttuned);
+		return list.remove(theAttuned);
 	}
 
 	public void removeItemHandler(IEnderItemHandler theAttuned) {
 
-		removeHandler(inputItem, theAttuned);
-		removeHandler(outputItem, theAttuned);
+		removeHandler(INPUT_ITEM, theAttuned);
+		removeHandler(OUTPUT_ITEM, theAttuned);
 	}
 
 	public void removeFluidHandler(IEnderFluidHandler theAttuned) {
 
-		removeHandler(inputFluid, theAttuned);
-		removeHandler(outputFluid, theAttuned);
+		removeHandler(INPUT_FLUID, theAttuned);
+		removeHandler(OUTPUT_FLUID, theAttuned);
 	}
 
 	public void removeEnergyHandler(IEnderEnergyHandler theAttuned) {
 
-		removeHandler(inputEnergy, theAttuned);
-		removeHandler(outputEnergy, theAttuned);
+		removeHandler(INPUT_ENERGY, theAttuned);
+		removeHandler(OUTPUT_ENERGY, theAttuned);
 	}
 
 	public void removeDestination(IEnderDestination theAttuned) {
 
 		String channel = theAttuned.getChannelString();
-		TIntObjectHashMap<EnderDestination> map = outputTeleport.get(channel);
-		if (map == null) {
+		int id = channelId(channel);
+		if (id < 0) {
 			return;
 		}
 		int freq = theAttuned.getFrequency();
-		EnderDestination dest = map.get(freq);
+		EnderSlot slot = slot(slotKey(id, freq));
+		EnderDestination dest = slot == null ? null : slot.destination;
 		if (dest == null) {
 			return;
 		}
 		if (dest.dimension == theAttuned.dimension()
 				&& dest.x == theAttuned.x() && dest.y == theAttuned.y() && dest.z == theAttuned.z()) {
-			map.remove(freq);
-			usedTeleports.get(channel).set(freq, false);
-			linkConf.getCategory(channel).remove(String.valueOf(freq));
+			slot.destination = null;
+			store.remove(slot.destinationRecord);
+			untrack(dest);
+			slot.destinationRecord = -1;
+			usedTeleports.get(id).set(freq, false);
 		}
 	}
 
@@ -406,15 +712,51 @@ public final class EnderRegistry {
 		}
 	}
 
+	/**
+	 * Everything attuned to a single (channel, frequency) pair.
+	 */
+	private static final class EnderSlot {
+
+		final int channelId;
+		final int frequency;
+		final List<?>[] handlers = new List<?>[HANDLER_TYPES];
+		EnderDestination destination;
+		int destinationRecord = -1;
+		EnderEnergyPool energyPool;
+		boolean energyPoolActive;
+
+		EnderSlot(int channelId, int frequency, boolean concurrent) {
+
+			this.channelId = channelId;
+			this.frequency = frequency;
+
+			if (concurrent) {
+				// created up front so that a published slot is never written to
+				for (int i = HANDLER_TYPES; i-- > 0;) {
+					handlers[i] = new SnapshotArrayList<Object>();
+				}
+			}
+		}
+	}
+
 	private static class EnderDestination {
 
+		private final String channel;
+		private final int frequency;
 		private final int dimension;
 		private final int x, y, z;
 		private IEnderDestination output;
+		private IEnderDestination placeholder;
 		private boolean isInvalid;
+		/**
+		 * The last lookup found the world or chunk unloaded; cleared when the chunk loads. Only set while chunk events are being received.
+		 */
+		private boolean unloaded;
 
-		public EnderDestination(IEnderDestination output) {
+		public EnderDestination(String channel, int frequency, IEnderDestination output) {
 
+			this.channel = channel;
+			this.frequency = frequency;
 			x = output.x();
 			y = output.y();
 			z = output.z();
@@ -422,8 +764,10 @@ public final class EnderRegistry {
 			this.output = output;
 		}
 
-		private EnderDestination(int x, int y, int z, int dimension) {
+		private EnderDestination(String channel, int frequency, int x, int y, int z, int dimension) {
 
+			this.channel = channel;
+			this.frequency = frequency;
 			this.x = x;
 			this.y = y;
 			this.z = z;
@@ -435,32 +779,60 @@ public final class EnderRegistry {
 			return !isInvalid && DimensionManager.isDimensionRegistered(dimension);
 		}
 
-		public IEnderDestination getOutput(boolean onlyLoaded) {
+		/**
+		 * @param tracked
+		 *            If true, chunk events are being received and an unloaded result may be cached until the chunk loads.
+		 */
+		public IEnderDestination getOutput(boolean onlyLoaded, boolean tracked) {
 
-			if (output == null || output.isNotValid()) {
+			if (output != null) {
+				if (!output.isNotValid()) {
+					return output;
+				}
 				output = null;
-				if (!DimensionManager.isDimensionRegistered(dimension)) {
+			}
+			if (isInvalid || onlyLoaded && unloaded) {
+				return null;
+			}
+			if (!DimensionManager.isDimensionRegistered(dimension)) {
+				return null;
+			}
+			WorldServer world = DimensionManager.getWorld(dimension);
+			if (world == null) {
+				if (onlyLoaded) {
+					unloaded = tracked;
 					return null;
 				}
-				WorldServer world = DimensionManager.getWorld(dimension);
-				if (world == null && !onlyLoaded) {
-					DimensionManager.initDimension(dimension);
-					world = DimensionManager.getWorld(dimension);
-				} else {
+				DimensionManager.initDimension(dimension);
+				world = DimensionManager.getWorld(dimension);
+				if (world == null) {
 					return null;
 				}
-				if (world.blockExists(x, y, z)) {
-					TileEntity te = world.getTileEntity(x, y, z);
-					if (te instanceof IEnderDestination) {
-						output = (IEnderDestination) te;
-					} else {
-						isInvalid = true;
-					}
+			}
+			if (world.blockExists(x, y, z)) {
+				TileEntity te = world.getTileEntity(x, y, z);
+				if (te instanceof IEnderDestination) {
+					output = (IEnderDestination) te;
+				} else {
+					isInvalid = true;
 				}
+			} else {
+				unloaded = tracked;
 			}
 			return output;
 		}
 
+		/**
+		 * @return An immutable stand-in reporting this destination's position, for when its tile is not loaded.
+		 */
+		public IEnderDestination getPlaceholder() {
+
+			if (placeholder == null) {
+				placeholder = new UnloadedDestination(channel, frequency, x, y, z, dimension);
+			}
+			return placeholder;
+		}
+
 		@Override
 		public String toString() {
 
@@ -485,4 +857,95 @@ public final class EnderRegistry {
 
 	}
 
+	private static final class UnloadedDestination implements IEnderDestination {
+
+		private final String channel;
+		private final int frequency;
+		private final int dimension;
+		private final int x, y, z;
+
+		UnloadedDestination(String channel, int frequency, int x, int y, int z, int dimension) {
+
+			this.channel = channel;
+			this.frequency = frequency;
+			this.x = x;
+			this.y = y;
+			this.z = z;
+			this.dimension = dimension;
+		}
+
+		@Override
+		public String getChannelString() {
+
+			return channel;
+		}
+
+		@Override
+		public int getFrequency() {
+
+			return frequency;
+		}
+
+		@Override
+		public boolean setFrequency(int frequency) {
+
+			return false;
+		}
+
+		@Override
+		public boolean clearFrequency() {
+
+			return false;
+		}
+
+		@Override
+		public boolean isNotValid() {
+
+			return true;
+		}
+
+		@Override
+		public int x() {
+
+			return x;
+		}
+
+		@Override
+		public int y() {
+
+			return y;
+		}
+
+		@Override
+		public int z() {
+
+			return z;
+		}
+
+		@Override
+		public int dimension() {
+
+			return dimension;
+		}
+
+		@Override
+		public int getDestination() {
+
+			return -1;
+		}
+
+		@Override
+		public boolean setDestination(int frequency) {
+
+			return false;
+		}
+
+		@Override
+		public boolean clearDestination() {
+
+			return false;
+		}
+
+	}
+
 }
@@ -0,0 +1,235 @@
+package cofh.lib.transport;
+
+import cofh.lib.transport.IEnderChannelRegistry.Frequency;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * Frequency&lt;-&gt;name mappings kept sorted by frequency, with a secondary index sorted by name.
+ * <p>
+ * Lookups, insertions and removals are a binary search plus an array shift, and the sorted views are never rebuilt. {@link #getRange(int, int)} and
+ * {@link #getByNamePrefix(String)} return the frequencies a picker (e.g. an {@link cofh.lib.gui.element.ElementListBox}) needs to show without scanning.
+ * <p>
+ * The shift makes {@link #put(int, String)} and {@link #remove(int)} O(n) in the worst case. The arrays are kept anyway: the shift is one
+ * <code>System.arraycopy</code> of references, microseconds even for tens of thousands of frequencies, and a balanced tree would cost a node per entry
+ * and give up the O(1) positional access the list views and pickers rely on.
+ */
+public class FrequencyIndex {
+
+	private static final Comparator<Frequency> NAME_ORDER = new Comparator<Frequency>() {
+
+		@Override
+		public int compare(Frequency a, Frequency b) {
+
+			int r = String.CASE_INSENSITIVE_ORDER.compare(a.name, b.name);
+			return r != 0 ? r : a.freq < b.freq ? -1 : a.freq == b.freq ? 0 : 1;
+		}
+	};
+
+	private int[] freqs = new int[16];
+	private Frequency[] byFreq = new Frequency[16];
+	private Frequency[] byName = new Frequency[16];
+	private int size;
+
+	private final List<Frequency> freqView = new View(false);
+	private final List<Frequency> nameView = new View(true);
+
+	public int size() {
+
+		return size;
+	}
+
+	public void clear() {
+
+		Arrays.fill(byFreq, 0, size, null);
+		Arrays.fill(byName, 0, size, null);
+		size = 0;
+	}
+
+	public String get(int freq) {
+
+		int i = Arrays.binarySearch(freqs, 0, size, freq);
+		return i < 0 ? null : byFreq[i].name;
+	}
+
+	/**
+	 * @return The previous name of <code>freq</code>, or null if it was not present.
+	 */
+	public String put(int freq, String name) {
+
+		Frequency f = new Frequency(freq, name);
+		int i = Arrays.binarySearch(freqs, 0, size, freq);
+		if (i >= 0) {
+			Frequency old = byFreq[i];
+			byFreq[i] = f;
+			removeName(old, size);
+			insertName(f, size - 1);
+			return old.name;
+		}
+		i = -i - 1;
+		ensureCapacity(size + 1);
+		System.arraycopy(freqs, i, freqs, i + 1, size - i);
+		System.arraycopy(byFreq, i, byFreq, i + 1, size - i);
+		freqs[i] = freq;
+		byFreq[i] = f;
+		insertName(f, size);
+		++size;
+		return null;
+	}
+
+	/**
+	 * @return The name <code>freq</code> had, or null if it was not present.
+	 */
+	public String remove(int freq) {
+
+		int i = Arrays.binarySearch(freqs, 0, size, freq);
+		if (i < 0) {
+			return null;
+		}
+		Frequency old = byFreq[i];
+		System.arraycopy(freqs, i + 1, freqs, i, size - i - 1);
+		System.arraycopy(byFreq, i + 1, byFreq, i, size - i - 1);
+		removeName(old, size);
+		byFreq[--size] = null;
+		return old.name;
+	}
+
+	/**
+	 * Replaces the contents with the first <code>count</code> entries of <code>entries</code>, sorting once. Later entries for the same frequency win.
+	 */
+	public void set(Frequency[] entries, int count) {
+
+		clear();
+		ensureCapacity(count);
+		System.arraycopy(entries, 0, byFreq, 0, count);
+		// stable, so duplicates keep their order and the last one is kept below
+		Arrays.sort(byFreq, 0, count);
+		int n = 0;
+		for (int i = 0; i < count; ++i) {
+			if (n > 0 && freqs[n - 1] == byFreq[i].freq) {
+				--n;
+			}
+			freqs[n] = byFreq[i].freq;
+			byFreq[n++] = byFreq[i];
+		}
+		Arrays.fill(byFreq, n, count, null);
+		System.arraycopy(byFreq, 0, byName, 0, n);
+		Arrays.sort(byName, 0, n, NAME_ORDER);
+		size = n;
+	}
+
+	/**
+	 * @return An unmodifiable view of all frequencies, in frequency order.
+	 */
+	public List<Frequency> asList() {
+
+		return freqView;
+	}
+
+	/**
+	 * @return An unmodifiable view of all frequencies, in case-insensitive name order.
+	 */
+	public List<Frequency> asListByName() {
+
+		return nameView;
+	}
+
+	/**
+	 * @return An unmodifiable view of the frequencies from <code>from</code> (inclusive) to <code>to</code> (exclusive), in frequency order.
+	 */
+	public List<Frequency> getRange(int from, int to) {
+
+		int lo = lowerBound(from), hi = to <= from ? lo : lowerBound(to);
+		return freqView.subList(lo, hi);
+	}
+
+	/**
+	 * @return An unmodifiable view of the frequencies whose names start with <code>prefix</code>, ignoring case, in name order.
+	 */
+	public List<Frequency> getByNamePrefix(String prefix) {
+
+		int lo = nameLowerBound(prefix), hi = lo;
+		int len = prefix.length();
+		while (hi < size && byName[hi].name.regionMatches(true, 0, prefix, 0, len)) {
+			++hi;
+		}
+		return nameView.subList(lo, hi);
+	}
+
+	private int lowerBound(int freq) {
+
+		int i = Arrays.binarySearch(freqs, 0, size, freq);
+		return i < 0 ? -i - 1 : i;
+	}
+
+	private int nameLowerBound(String name) {
+
+		int lo = 0, hi = size;
+		while (lo < hi) {
+			int mid = (lo + hi) >>> 1;
+			if (String.CASE_INSENSITIVE_ORDER.compare(byName[mid].name, name) < 0) {
+				lo = mid + 1;
+			} else {
+				hi = mid;
+			}
+		}
+		return lo;
+	}
+
+	private void insertName(Frequency f, int count) {
+
+		int i = Arrays.binarySearch(byName, 0, count, f, NAME_ORDER);
+		i = i < 0 ? -i - 1 : i;
+		System.arraycopy(byName, i, byName, i + 1, count - i);
+		byName[i] = f;
+	}
+
+	private void removeName(Frequency f, int count) {
+
+		int i = Arrays.binarySearch(byName, 0, count, f, NAME_ORDER);
+		if (i >= 0) {
+			System.arraycopy(byName, i + 1, byName, i, count - i - 1);
+			byName[count - 1] = null;
+		}
+	}
+
+	private void ensureCapacity(int minCapacity) {
+
+		if (minCapacity > freqs.length) {
+			int newCapacity = Math.max(minCapacity, freqs.length + (freqs.length >> 1));
+			freqs = Arrays.copyOf(freqs, newCapacity);
+			byFreq = Arrays.copyOf(byFreq, newCapacity);
+			byName = Arrays.copyOf(byName, newCapacity);
+		}
+	}
+
+	private class View extends AbstractList<Frequency> implements RandomAccess {
+
+		private final boolean names;
+
+		View(boolean names) {
+
+			this.names = names;
+		}
+
+		@Override
+		public Frequency get(int index) {
+
+			if (index >= size) {
+				throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+			}
+			return names ? byName[index] : byFreq[index];
+		}
+
+		@Override
+		public int size() {
+
+			return size;
+		}
+	}
+
+}
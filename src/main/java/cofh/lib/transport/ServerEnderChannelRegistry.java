@@ -1,16 +1,24 @@
 package cofh.lib.transport;
 
 import cofh.lib.network.ByteBufHelper;
+import cofh.lib.util.ConfigSnapshotWriter;
 
+import gnu.trove.iterator.TIntIterator;
 import gnu.trove.iterator.TIntObjectIterator;
 import gnu.trove.map.hash.TIntObjectHashMap;
+import gnu.trove.set.hash.TIntHashSet;
 
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.Unpooled;
 
+import java.io.File;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
 
 import net.minecraftforge.common.config.ConfigCategory;
 import net.minecraftforge.common.config.Configuration;
@@ -19,15 +27,40 @@ import net.minecraftforge.common.config.Property;
 public class ServerEnderChannelRegistry implements IEnderChannelRegistry {
 
 	protected Configuration linkConf;
+	protected ConfigSnapshotWriter linkWriter;
 	protected HashMap<String, TIntObjectHashMap<String>> channels;
 	private int modCount;
+	private int savedModCount;
 
+	/**
+	 * Identifies this registry instance, so versions from before a restart are never mistaken for current ones.
+	 */
+	private final int epoch = (int) System.nanoTime() & Integer.MAX_VALUE;
+
+	/**
+	 * Ring buffer of the most recent changes; <code>logVersion[i]</code> is the value of <code>modCount</code> after change <code>i</code> was made.
+	 */
+	private static final int LOG_SIZE = 1024;
+	private final int[] logVersion = new int[LOG_SIZE];
+	private final String[] logChannel = new String[LOG_SIZE];
+	private final int[] logFreq = new int[LOG_SIZE];
+	private final String[] logName = new String[LOG_SIZE];
+	private int logHead; // next slot to write
+	private int logSize;
+
+	/**
+	 * Loads the frequency names from <code>config</code>. From then on this registry owns its file: the names are only written by the registry's
+	 * {@link ConfigSnapshotWriter}, and the owner of <code>config</code> must never save it, or it would write back the names as they were at load.
+	 */
 	public ServerEnderChannelRegistry(Configuration config) {
 
 		channels = new HashMap<String, TIntObjectHashMap<String>>();
 
 		linkConf = config;
+		// Configuration.toString() is the absolute path of its file
+		linkWriter = new ConfigSnapshotWriter(new File(config.toString()));
 		load();
+		savedModCount = modCount;
 	}
 
 	protected void load() {
@@ -49,13 +82,42 @@ public class ServerEnderChannelRegistry implements IEnderChannelRegistry {
 		}
 	}
 
+	/**
+	 * Queues the frequency names to be written to the configuration in the background, if they changed since the last save.
+	 */
 	public void save() {
 
-		if (linkConf.hasChanged()) {
-			linkConf.save();
+		if (modCount != savedModCount) {
+			savedModCount = modCount;
+			linkWriter.submit(snapshot());
 		}
 	}
 
+	/**
+	 * Saves, waits for the write to finish and stops the writer thread. Call when the server is stopping; later saves are written on the calling thread.
+	 */
+	public void saveAndFlush() {
+
+		save();
+		linkWriter.close();
+	}
+
+	protected Map<String, Map<String, String>> snapshot() {
+
+		TreeMap<String, Map<String, String>> snapshot = new TreeMap<String, Map<String, String>>();
+		for (Map.Entry<String, TIntObjectHashMap<String>> channel : channels.entrySet()) {
+			TIntObjectHashMap<String> map = channel.getValue();
+			int[] freqs = map.keys();
+			Arrays.sort(freqs);
+			LinkedHashMap<String, String> category = new LinkedHashMap<String, String>(freqs.length * 2);
+			for (int freq : freqs) {
+				category.put(String.valueOf(freq), map.get(freq));
+			}
+			snapshot.put(channel.getKey(), category);
+		}
+		return snapshot;
+	}
+
 	/**
 	 * Returns nulls or a ByteBuf of the frequency<->name mappings for <code>channel</code><br>
 	 * <b>Format:</b>
@@ -70,7 +132,7 @@ public class ServerEnderChannelRegistry implements IEnderChannelRegistry {
 	public ByteBuf getFrequencyData(String channel) {
 
 		TIntObjectHashMap<String> map = channels.get(channel);
-		ByteBuf ret = Unpooled.buffer();
+		ByteBuf ret = Unpooled.buffer(ByteBufHelper.varIntSize(map == null ? 0 : map.size()) + ByteBufHelper.stringSize(channel) + frequencySize(map));
 		if (map != null) {
 			TIntObjectIterator<String> iter = map.iterator(); // allocate before size() so a comod throws correctly
 			ByteBufHelper.writeVarInt(map.size(), ret);
@@ -87,6 +149,115 @@ public class ServerEnderChannelRegistry implements IEnderChannelRegistry {
 		return ret;
 	}
 
+	public int getEpoch() {
+
+		return epoch;
+	}
+
+	/**
+	 * Returns a ByteBuf of the frequency&lt;-&gt;name changes for <code>channel</code> since a client's last update, or of all its frequencies if the change
+	 * log no longer reaches back that far.<br>
+	 * <b>Format:</b>
+	 * <ul>
+	 * <code><b>VarInt</b> epoch ; <b>VarInt</b> version ; <b>byte</b> full ; <b>String</b> channel ; <b>VarInt</b> entries : <b>VarInt</b> frequency ;
+	 * <b>String</b> name</code>
+	 * </ul>
+	 * If <code>full</code> is 0 the entries are changes to apply, and a null name means the frequency was removed; otherwise they replace the client's
+	 * frequencies.
+	 *
+	 * @param channel
+	 *            The channel to get frequency data for
+	 * @param epoch
+	 *            The epoch of the client's last update, as returned by {@link ClientEnderChannelRegistry#getSyncEpoch()}
+	 * @param version
+	 *            The version of the client's last update for <code>channel</code>, or -1 if it has none
+	 */
+	public ByteBuf getFrequencyUpdate(String channel, int epoch, int version) {
+
+		int oldest = logSize == 0 ? modCount + 1 : logVersion[(logHead - logSize + LOG_SIZE) % LOG_SIZE];
+		boolean full = epoch != this.epoch || version < 0 || version > modCount || version + 1 < oldest;
+		TIntObjectHashMap<String> map = full ? channels.get(channel) : null;
+		int header = ByteBufHelper.varIntSize(this.epoch) + ByteBufHelper.varIntSize(modCount) + 1 + ByteBufHelper.stringSize(channel);
+		ByteBuf ret = full ? Unpooled.buffer(header + ByteBufHelper.varIntSize(map == null ? 0 : map.size()) + frequencySize(map)) : Unpooled.buffer();
+		ByteBufHelper.writeVarInt(this.epoch, ret);
+		ByteBufHelper.writeVarInt(modCount, ret);
+
+		if (full) {
+			ret.writeByte(1);
+			ByteBufHelper.writeString(channel, ret);
+			if (map == null) {
+				ByteBufHelper.writeVarInt(0, ret);
+				return ret;
+			}
+			TIntObjectIterator<String> iter = map.iterator(); // allocate before size() so a comod throws correctly
+			ByteBufHelper.writeVarInt(map.size(), ret);
+			for (; iter.hasNext();) {
+				iter.advance();
+				ByteBufHelper.writeVarInt(iter.key(), ret);
+				ByteBufHelper.writeString(iter.value(), ret);
+			}
+			return ret;
+		}
+
+		ret.writeByte(0);
+		ByteBufHelper.writeString(channel, ret);
+		// later changes to a frequency replace earlier ones
+		TIntObjectHashMap<String> changes = new TIntObjectHashMap<String>();
+		TIntHashSet removed = new TIntHashSet();
+		for (int i = logSize; i > 0; --i) {
+			int slot = (logHead - i + LOG_SIZE) % LOG_SIZE;
+			if (logVersion[slot] > version && channel.equals(logChannel[slot])) {
+				String name = logName[slot];
+				if (name == null) {
+					changes.remove(logFreq[slot]);
+					removed.add(logFreq[slot]);
+				} else {
+					removed.remove(logFreq[slot]);
+					changes.put(logFreq[slot], name);
+				}
+			}
+		}
+		ByteBufHelper.writeVarInt(changes.size() + removed.size(), ret);
+		for (TIntObjectIterator<String> iter = changes.iterator(); iter.hasNext();) {
+			iter.advance();
+			ByteBufHelper.writeVarInt(iter.key(), ret);
+			ByteBufHelper.writeString(iter.value(), ret);
+		}
+		for (TIntIterator iter = removed.iterator(); iter.hasNext();) {
+			ByteBufHelper.writeVarInt(iter.next(), ret);
+			ByteBufHelper.writeString(null, ret);
+		}
+		return ret;
+	}
+
+	/**
+	 * @return The encoded size of the entries of <code>map</code>, so responses are allocated once.
+	 */
+	private static int frequencySize(TIntObjectHashMap<String> map) {
+
+		if (map == null) {
+			return 0;
+		}
+		int r = 0;
+		for (TIntObjectIterator<String> iter = map.iterator(); iter.hasNext();) {
+			iter.advance();
+			r += ByteBufHelper.varIntSize(iter.key()) + ByteBufHelper.stringSize(iter.value());
+		}
+		return r;
+	}
+
+	private void logChange(String channel, int freq, String name) {
+
+		logVersion[logHead] = modCount;
+		logChannel[logHead] = channel;
+		logFreq[logHead] = freq;
+		logName[logHead] = name;
+		logHead = (logHead + 1) % LOG_SIZE;
+		if (logSize < LOG_SIZE) {
+			++logSize;
+		}
+	}
+
 	@Override
 	public List<Frequency> getFrequencyList(String channel) {
 
@@ -120,7 +291,7 @@ public class ServerEnderChannelRegistry implements IEnderChannelRegistry {
 		}
 		String old = map.put(freq, name);
 		++modCount;
-		linkConf.get(channel, String.valueOf(freq), "").set(name);
+		logChange(channel, freq, name);
 		return old;
 	}
 
@@ -134,7 +305,7 @@ public class ServerEnderChannelRegistry implements IEnderChannelRegistry {
 		String old = map.remove(freq);
 		if (old != null) {
 			++modCount;
-			linkConf.getCategory(channel).remove(String.valueOf(freq));
+			logChange(channel, freq, null);
 		}
 		return old;
 	}
@@ -1,8 +1,10 @@
 package cofh.lib.util;
 
-import com.google.common.base.Objects;
 import com.google.common.primitives.Ints;
 
+import gnu.trove.procedure.TObjectProcedure;
+import gnu.trove.strategy.HashingStrategy;
+
 import java.util.AbstractCollection;
 import java.util.Arrays;
 import java.util.Collection;
@@ -40,9 +42,17 @@ public class ArrayHashList<E extends Object> extends AbstractCollection<E> imple
 	protected transient int mask;
 	protected transient Entry[] hashTable;
 	protected transient int modCount;
+	protected transient int rehashCount;
+	protected HashingStrategy<? super E> strategy;
 
 	public ArrayHashList() {
 
+		this(HashingStrategies.DEFAULT);
+	}
+
+	public ArrayHashList(HashingStrategy<? super E> strategy) {
+
+		this.strategy = strategy;
 		elementData = new Object[10];
 		hashTable = new Entry[8];
 		mask = 7;
@@ -50,6 +60,12 @@ public class ArrayHashList<E extends Object> extends AbstractCollection<E> imple
 
 	public ArrayHashList(int size) {
 
+		this(size, HashingStrategies.DEFAULT);
+	}
+
+	public ArrayHashList(int size, HashingStrategy<? super E> strategy) {
+
+		this.strategy = strategy;
 		elementData = new Object[size];
 		size = roundUpToPowerOf2(size) >> 1;
 		hashTable = new Entry[size];
@@ -58,6 +74,12 @@ public class ArrayHashList<E extends Object> extends AbstractCollection<E> imple
 
 	public ArrayHashList(Collection<E> col) {
 
+		this(col, HashingStrategies.DEFAULT);
+	}
+
+	public ArrayHashList(Collection<E> col, HashingStrategy<? super E> strategy) {
+
+		this.strategy = strategy;
 		int size = col.size();
 		elementData = new Object[size];
 		size = roundUpToPowerOf2(size) >> 1;
@@ -68,9 +90,7 @@ public class ArrayHashList<E extends Object> extends AbstractCollection<E> imple
 
 	protected int hash(Object n) {
 
-		int h = n == null ? 0 : n.hashCode();
-		h ^= (h >>> 20) ^ (h >>> 12);
-		return h ^ (h >>> 7) ^ (h >>> 4);
+		return strategy.computeHashCode((E) n);
 	}
 
 	@Override
@@ -142,6 +162,30 @@ public class ArrayHashList<E extends Object> extends AbstractCollection<E> imple
 		rehashIfNecessary();
 	}
 
+	/**
+	 * Appends every element of <code>c</code> not already present, growing the array and hash table once up front.
+	 */
+	@Override
+	public boolean addAll(Collection<? extends E> c) {
+
+		int n = c.size();
+		if (n == 0) {
+			return false;
+		}
+		ensureCapacityInternal(size + n);
+		rehashFor(size + n);
+
+		int oldSize = size;
+		for (E obj : c) {
+			int hash = hash(obj);
+			if (seek(obj, hash) == null) {
+				elementData[size++] = obj;
+				insert(new Entry(obj, hash));
+			}
+		}
+		return size != oldSize;
+	}
+
 	@Override
 	public boolean addAll(int index, Collection<? extends E> c) {
 
@@ -194,6 +238,87 @@ public class ArrayHashList<E extends Object> extends AbstractCollection<E> imple
 		return seek(obj, hash(obj)) != null;
 	}
 
+	/**
+	 * Calls <code>procedure</code> for every element in order, until it returns false. Allocates nothing; the list must not be modified meanwhile.
+	 *
+	 * @return False if <code>procedure</code> stopped the iteration.
+	 */
+	public boolean forEachElement(TObjectProcedure<? super E> procedure) {
+
+		Object[] data = elementData;
+		for (int i = 0, e = size; i < e; ++i) {
+			if (!procedure.execute((E) data[i])) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Removes every element for which <code>filter</code> returns true, compacting the array in a single pass.
+	 * <p>
+	 * Hash entries are only dropped once the pass is done; if <code>filter</code> throws, the list keeps every element.
+	 *
+	 * @return True if any element was removed.
+	 */
+	public boolean removeMatching(TObjectProcedure<? super E> filter) {
+
+		Object[] data = elementData;
+		int w = 0;
+		for (int r = 0, e = size; r < e; ++r) {
+			Object o = data[r];
+			if (!filter.execute((E) o)) {
+				data[r] = data[w];
+				data[w++] = o;
+			}
+		}
+		return truncate(w);
+	}
+
+	@Override
+	public boolean removeAll(Collection<?> c) {
+
+		return batchRemove(c, true);
+	}
+
+	@Override
+	public boolean retainAll(Collection<?> c) {
+
+		return batchRemove(c, false);
+	}
+
+	private boolean batchRemove(Collection<?> c, boolean contained) {
+
+		Object[] data = elementData;
+		int w = 0;
+		for (int r = 0, e = size; r < e; ++r) {
+			Object o = data[r];
+			if (c.contains(o) != contained) {
+				data[r] = data[w];
+				data[w++] = o;
+			}
+		}
+		return truncate(w);
+	}
+
+	/**
+	 * Drops the elements from <code>newSize</code> on, which a stable partition has moved to the end, from the hash table and the array.
+	 */
+	private boolean truncate(int newSize) {
+
+		if (newSize == size) {
+			return false;
+		}
+		++modCount;
+		Object[] data = elementData;
+		for (int i = newSize; i < size; ++i) {
+			delete(seek(data[i], hash(data[i])));
+		}
+		Arrays.fill(data, newSize, size, null);
+		size = newSize;
+		return true;
+	}
+
 	@Override
 	public E remove(int index) {
 
@@ -352,6 +477,10 @@ public class ArrayHashList<E extends Object> extends AbstractCollection<E> imple
 
 		// Read in size, and any hidden stuff
 		s.defaultReadObject();
+		if (strategy == null) {
+			// written before strategies existed
+			strategy = HashingStrategies.DEFAULT;
+		}
 
 		// Read in capacity
 		int size = s.readInt();
@@ -377,7 +506,7 @@ public class ArrayHashList<E extends Object> extends AbstractCollection<E> imple
 	protected Entry seek(Object obj, int hash) {
 
 		for (Entry entry = hashTable[hash & mask]; entry != null; entry = entry.nextInBucket) {
-			if (hash == entry.hash && Objects.equal(obj, entry.key)) {
+			if (hash == entry.hash && strategy.equals((E) obj, (E) entry.key)) {
 				return entry;
 			}
 		}
@@ -413,32 +542,92 @@ public class ArrayHashList<E extends Object> extends AbstractCollection<E> imple
 
 	protected void rehashIfNecessary() {
 
-		Entry[] old = hashTable, newTable;
+		Entry[] old = hashTable;
 		if (size > old.length * 2 && old.length < Ints.MAX_POWER_OF_TWO) {
-			synchronized (hashTable) {
-				int newTableSize = old.length * 2, newMask = newTableSize - 1;
-				newTable = new Entry[newTableSize];
-
-				for (int bucket = old.length; bucket-- > 0;) {
-					Entry entry = old[bucket];
-					while (entry != null) {
-						Entry nextEntry = entry.nextInBucket;
-						int keyBucket = entry.hash & newMask;
-						entry.nextInBucket = newTable[keyBucket];
-						newTable[keyBucket] = entry;
-						entry = nextEntry;
-					}
+			rehash(old.length * 2);
+		}
+	}
+
+	/**
+	 * Grows the hash table once so that it can hold <code>expectedSize</code> elements.
+	 */
+	protected void rehashFor(int expectedSize) {
+
+		int length = hashTable.length;
+		while (expectedSize > length * 2 && length < Ints.MAX_POWER_OF_TWO) {
+			length <<= 1;
+		}
+		if (length != hashTable.length) {
+			rehash(length);
+		}
+	}
+
+	private void rehash(int newTableSize) {
+
+		Entry[] old = hashTable, newTable;
+		synchronized (hashTable) {
+			int newMask = newTableSize - 1;
+			newTable = new Entry[newTableSize];
+
+			for (int bucket = old.length; bucket-- > 0;) {
+				Entry entry = old[bucket];
+				while (entry != null) {
+					Entry nextEntry = entry.nextInBucket;
+					int keyBucket = entry.hash & newMask;
+					entry.nextInBucket = newTable[keyBucket];
+					newTable[keyBucket] = entry;
+					entry = nextEntry;
 				}
-				hashTable = newTable;
-				mask = newMask;
 			}
+			hashTable = newTable;
+			mask = newMask;
+			++rehashCount;
+		}
+	}
+
+	/* DIAGNOSTICS */
+	/**
+	 * @return The number of times the hash table has grown since this list was created.
+	 */
+	public int getRehashCount() {
+
+		return rehashCount;
+	}
+
+	/**
+	 * @return The number of elements in the fullest bucket.
+	 */
+	public int getMaxChainLength() {
+
+		return getBucketHistogram().length - 1;
+	}
+
+	/**
+	 * @return An array whose element <code>n</code> is the number of buckets holding exactly <code>n</code> elements; its length is one more than the
+	 *         longest chain.
+	 */
+	public int[] getBucketHistogram() {
+
+		int[] histogram = new int[4];
+		int max = 0;
+		for (Entry bucket : hashTable) {
+			int n = 0;
+			for (Entry entry = bucket; entry != null; entry = entry.nextInBucket) {
+				++n;
+			}
+			if (n >= histogram.length) {
+				histogram = Arrays.copyOf(histogram, Math.max(n + 1, histogram.length * 2));
+			}
+			++histogram[n];
+			max = Math.max(max, n);
 		}
+		return Arrays.copyOf(histogram, max + 1);
 	}
 
 	@Override
 	public ArrayHashList<E> clone() {
 
-		return new ArrayHashList<E>(this);
+		return new ArrayHashList<E>(this, strategy);
 	}
 
 	@Override
@@ -0,0 +1,333 @@
+package cofh.lib.util;
+
+import java.util.AbstractQueue;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+
+/**
+ * A thread-safe, duplicate-free FIFO queue, for handing work between the server thread and worker threads.
+ * <p>
+ * Membership is kept in hash buckets split into independently locked stripes, so <code>add</code>, <code>contains</code> and <code>remove</code> on
+ * different elements rarely contend. Order is kept in a lock-free linked queue (Michael-Scott); <code>poll</code> never takes a stripe lock until it has
+ * claimed an element. Removing an element only marks its link dead; <code>poll</code> and <code>peek</code> move the head past dead links at the front, and
+ * iterators unlink the dead links they pass elsewhere.
+ * <p>
+ * Iterators are weakly consistent: they never throw {@link java.util.ConcurrentModificationException} and may or may not reflect changes made after they
+ * were created. Null elements are not permitted.
+ */
+@SuppressWarnings("unchecked")
+public class ConcurrentLinkedHashSet<E extends Object> extends AbstractQueue<E> {
+
+	private static final class Node {
+
+		volatile Object item;
+		volatile Node next;
+
+		Node(Object item) {
+
+			this.item = item;
+		}
+	}
+
+	private static final AtomicReferenceFieldUpdater<Node, Object> ITEM = AtomicReferenceFieldUpdater.newUpdater(Node.class, Object.class, "item");
+	private static final AtomicReferenceFieldUpdater<Node, Node> NEXT = AtomicReferenceFieldUpdater.newUpdater(Node.class, Node.class, "next");
+
+	private final HashMap<Object, Node>[] stripes;
+	private final int stripeMask;
+	private final AtomicReference<Node> head;
+	private final AtomicReference<Node> tail;
+	private final AtomicInteger count = new AtomicInteger();
+
+	public ConcurrentLinkedHashSet() {
+
+		this(16);
+	}
+
+	/**
+	 * @param concurrencyLevel
+	 *            Estimated number of threads adding and removing at the same time; rounded up to a power of two to give the number of stripes.
+	 */
+	public ConcurrentLinkedHashSet(int concurrencyLevel) {
+
+		int n = LinkedHashList.roundUpToPowerOf2(Math.max(concurrencyLevel, 1));
+		stripes = (HashMap<Object, Node>[]) new HashMap<?, ?>[n];
+		for (int i = 0; i < n; ++i) {
+			stripes[i] = new HashMap<Object, Node>();
+		}
+		stripeMask = n - 1;
+		Node dummy = new Node(null);
+		head = new AtomicReference<Node>(dummy);
+		tail = new AtomicReference<Node>(dummy);
+	}
+
+	private HashMap<Object, Node> stripeFor(Object o) {
+
+		int h = o.hashCode();
+		h ^= (h >>> 20) ^ (h >>> 12);
+		h ^= (h >>> 7) ^ (h >>> 4);
+		return stripes[h & stripeMask];
+	}
+
+	@Override
+	public int size() {
+
+		return count.get();
+	}
+
+	@Override
+	public boolean isEmpty() {
+
+		return peek() == null;
+	}
+
+	/**
+	 * Adds <code>obj</code> at the tail if it is not already present.
+	 *
+	 * @return True if it was added.
+	 */
+	@Override
+	public boolean offer(E obj) {
+
+		if (obj == null) {
+			throw new NullPointerException();
+		}
+		HashMap<Object, Node> stripe = stripeFor(obj);
+		Node n = new Node(obj);
+		synchronized (stripe) {
+			Node old = stripe.get(obj);
+			if (old != null && old.item != null) {
+				return false;
+			}
+			stripe.put(obj, n);
+		}
+		count.incrementAndGet();
+		enqueue(n);
+		return true;
+	}
+
+	/**
+	 * Same as {@link #offer(Object)}; returns false instead of throwing if <code>obj</code> is already present.
+	 */
+	@Override
+	public boolean add(E obj) {
+
+		return offer(obj);
+	}
+
+	public boolean push(E obj) {
+
+		return offer(obj);
+	}
+
+	/**
+	 * Removes and returns the head, or null if empty.
+	 */
+	@Override
+	public E poll() {
+
+		for (;;) {
+			Node h = head.get(), t = tail.get(), first = h.next;
+			if (h != head.get()) {
+				continue;
+			}
+			if (first == null) {
+				return null;
+			}
+			if (h == t) {
+				tail.compareAndSet(t, first);
+				continue;
+			}
+			if (head.compareAndSet(h, first)) {
+				// first is the new dummy; claim its element, unless it was removed already
+				Object item = first.item;
+				if (item != null && ITEM.compareAndSet(first, item, null)) {
+					release(item, first);
+					return (E) item;
+				}
+			}
+		}
+	}
+
+	public E shift() {
+
+		return poll();
+	}
+
+	/**
+	 * @return The head, or null if empty.
+	 */
+	@Override
+	public E peek() {
+
+		for (;;) {
+			Node h = head.get(), t = tail.get(), first = h.next;
+			if (h != head.get()) {
+				continue;
+			}
+			if (first == null) {
+				return null;
+			}
+			Object item = first.item;
+			if (item != null) {
+				return (E) item;
+			}
+			// first was removed; make it the new dummy, as poll would
+			if (h == t) {
+				tail.compareAndSet(t, first);
+			} else {
+				head.compareAndSet(h, first);
+			}
+		}
+	}
+
+	public E poke() {
+
+		return peek();
+	}
+
+	@Override
+	public boolean contains(Object obj) {
+
+		if (obj == null) {
+			return false;
+		}
+		HashMap<Object, Node> stripe = stripeFor(obj);
+		synchronized (stripe) {
+			Node n = stripe.get(obj);
+			return n != null && n.item != null;
+		}
+	}
+
+	@Override
+	public boolean remove(Object obj) {
+
+		if (obj == null) {
+			return false;
+		}
+		HashMap<Object, Node> stripe = stripeFor(obj);
+		Node n;
+		synchronized (stripe) {
+			n = stripe.remove(obj);
+		}
+		if (n == null) {
+			return false;
+		}
+		Object item = n.item;
+		if (item != null && ITEM.compareAndSet(n, item, null)) {
+			count.decrementAndGet();
+			return true;
+		}
+		// a concurrent poll claimed it first
+		return false;
+	}
+
+	@Override
+	public void clear() {
+
+		while (poll() != null) {
+		}
+	}
+
+	@Override
+	public Iterator<E> iterator() {
+
+		return new Itr();
+	}
+
+	private void enqueue(Node n) {
+
+		for (;;) {
+			Node t = tail.get(), next = t.next;
+			if (t != tail.get()) {
+				continue;
+			}
+			if (next == null) {
+				if (NEXT.compareAndSet(t, null, n)) {
+					tail.compareAndSet(t, n);
+					return;
+				}
+			} else {
+				tail.compareAndSet(t, next);
+			}
+		}
+	}
+
+	private void release(Object item, Node n) {
+
+		count.decrementAndGet();
+		HashMap<Object, Node> stripe = stripeFor(item);
+		synchronized (stripe) {
+			// it may have been re-added since it was claimed
+			if (stripe.get(item) == n) {
+				stripe.remove(item);
+			}
+		}
+	}
+
+	private class Itr implements Iterator<E> {
+
+		private Node next;
+		private Object nextItem;
+		private Object lastReturned;
+
+		Itr() {
+
+			advance(head.get());
+		}
+
+		private void advance(Node from) {
+
+			for (Node p = from, n = p.next; n != null; n = p.next) {
+				Object item = n.item;
+				if (item != null) {
+					next = n;
+					nextItem = item;
+					return;
+				}
+				Node succ = n.next;
+				if (succ == null) {
+					break;
+				}
+				// unlink the dead node; the last node stays, as enqueue appends to it. next links are never cleared, so a lost race only
+				// leaves a dead node reachable
+				if (!NEXT.compareAndSet(p, n, succ)) {
+					p = n;
+				}
+			}
+			next = null;
+			nextItem = null;
+		}
+
+		@Override
+		public boolean hasNext() {
+
+			return next != null;
+		}
+
+		@Override
+		public E next() {
+
+			if (next == null) {
+				throw new NoSuchElementException();
+			}
+			lastReturned = nextItem;
+			advance(next);
+			return (E) lastReturned;
+		}
+
+		@Override
+		public void remove() {
+
+			if (lastReturned == null) {
+				throw new IllegalStateException();
+			}
+			ConcurrentLinkedHashSet.this.remove(lastReturned);
+			lastReturned = null;
+		}
+	}
+
+}
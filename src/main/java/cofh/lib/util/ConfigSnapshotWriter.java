@@ -0,0 +1,182 @@
+package cofh.lib.util;
+
+import com.google.common.base.CharMatcher;
+
+import cpw.mods.fml.common.FMLLog;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.apache.logging.log4j.Level;
+
+/**
+ * Write-behind persistence for flat <code>category -&gt; key -&gt; value</code> data in the Forge <code>.cfg</code> format, so the file stays readable by
+ * {@link net.minecraftforge.common.config.Configuration}.
+ * <p>
+ * {@link #submit(Map)} hands over an immutable snapshot and returns immediately; a background thread writes it to a temporary file and renames that over
+ * the target. Where the target cannot be replaced in one step it is renamed to <code>.bak</code> until the new file is in place. Snapshots submitted
+ * while a write is pending replace each other, so only the latest one is written. {@link #close()} stops the thread when the server stops; snapshots
+ * submitted after that are written on the calling thread.
+ */
+public class ConfigSnapshotWriter {
+
+	private static final String NEW_LINE = System.getProperty("line.separator");
+	private static final CharMatcher ALLOWED_CHARS = CharMatcher.JAVA_LETTER_OR_DIGIT.or(CharMatcher.anyOf("._-"));
+
+	private final File file;
+	private final AtomicReference<Map<String, Map<String, String>>> pending = new AtomicReference<Map<String, Map<String, String>>>();
+	private final ExecutorService executor;
+	private volatile boolean closed;
+
+	public ConfigSnapshotWriter(File file) {
+
+		this.file = file;
+		final String name = "CoFH config writer (" + file.getName() + ")";
+		executor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+
+			@Override
+			public Thread newThread(Runnable r) {
+
+				Thread thread = new Thread(r, name);
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+	}
+
+	/**
+	 * Queues <code>snapshot</code> to be written. The maps must not be modified after this call.
+	 */
+	public void submit(Map<String, Map<String, String>> snapshot) {
+
+		if (closed) {
+			pending.set(null);
+			writeLogged(snapshot);
+			return;
+		}
+		if (pending.getAndSet(snapshot) == null) {
+			executor.execute(new Runnable() {
+
+				@Override
+				public void run() {
+
+					Map<String, Map<String, String>> data = pending.getAndSet(null);
+					if (data != null) {
+						writeLogged(data);
+					}
+				}
+			});
+		}
+	}
+
+	/**
+	 * Blocks until every submitted snapshot has been written. Call when the server is stopping.
+	 */
+	public void flush() {
+
+		if (closed) {
+			return;
+		}
+		try {
+			executor.submit(new Runnable() {
+
+				@Override
+				public void run() {
+
+				}
+			}).get(30, TimeUnit.SECONDS);
+		} catch (Exception e) {
+			FMLLog.log(Level.ERROR, e, "Timed out saving %s", file.getAbsolutePath());
+		}
+	}
+
+	/**
+	 * Writes every submitted snapshot and stops the background thread. Call when the server is stopping.
+	 */
+	public void close() {
+
+		if (closed) {
+			return;
+		}
+		closed = true;
+		executor.shutdown();
+		try {
+			if (!executor.awaitTermination(30, TimeUnit.SECONDS)) {
+				FMLLog.severe("Timed out saving %s", file.getAbsolutePath());
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private void writeLogged(Map<String, Map<String, String>> data) {
+
+		try {
+			write(data);
+		} catch (Throwable t) {
+			FMLLog.log(Level.ERROR, t, "Failed to save %s", file.getAbsolutePath());
+		}
+	}
+
+	private synchronized void write(Map<String, Map<String, String>> data) throws IOException {
+
+		File parent = file.getAbsoluteFile().getParentFile();
+		if (parent != null && !parent.exists()) {
+			parent.mkdirs();
+		}
+		File temp = new File(parent, file.getName() + ".tmp");
+
+		BufferedWriter out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(temp), "UTF-8"));
+		try {
+			out.write("# Configuration file");
+			out.write(NEW_LINE);
+			out.write(NEW_LINE);
+			for (Map.Entry<String, Map<String, String>> category : data.entrySet()) {
+				out.write(quote(category.getKey()));
+				out.write(" {");
+				out.write(NEW_LINE);
+				for (Map.Entry<String, String> prop : category.getValue().entrySet()) {
+					out.write("    S:");
+					out.write(quote(prop.getKey()));
+					out.write('=');
+					out.write(prop.getValue());
+					out.write(NEW_LINE);
+				}
+				out.write('}');
+				out.write(NEW_LINE);
+				out.write(NEW_LINE);
+			}
+		} finally {
+			out.close();
+		}
+
+		// renameTo replaces the target on POSIX systems but not on Windows, where the old file is moved aside first and put back if the new one fails
+		if (!temp.renameTo(file)) {
+			File backup = new File(parent, file.getName() + ".bak");
+			backup.delete();
+			if (file.exists() && !file.renameTo(backup)) {
+				throw new IOException("Failed to move " + file.getAbsolutePath() + " to " + backup.getName());
+			}
+			if (!temp.renameTo(file)) {
+				backup.renameTo(file);
+				throw new IOException("Failed to replace " + file.getAbsolutePath() + " with " + temp.getName());
+			}
+			backup.delete();
+		}
+	}
+
+	private static String quote(String name) {
+
+		return ALLOWED_CHARS.matchesAllOf(name) ? name : '"' + name + '"';
+	}
+
+}
@@ -0,0 +1,82 @@
+package cofh.lib.util;
+
+import com.google.common.base.Objects;
+
+import gnu.trove.strategy.HashingStrategy;
+
+/**
+ * Hashing strategies for {@link ArrayHashList}, {@link OpenArrayHashList}, {@link LinkedHashList} and {@link IndexedLinkedHashList}.
+ * <p>
+ * The lists index buckets with the low bits of the hash, so element hash codes that differ only in their high bits (e.g.
+ * {@link cofh.lib.util.ComparableItem}, whose item id sits above bit 16) all land in the same few buckets unless the hash is mixed first. The strategies
+ * here run every hash code through the murmur3 32-bit finalizer, which lets every input bit affect every bucket bit.
+ * <p>
+ * Strategies receive <code>null</code> if the list holds it.
+ */
+public enum HashingStrategies implements HashingStrategy<Object> {
+
+	/**
+	 * {@link Object#hashCode()} and {@link Object#equals(Object)}, mixed. The default.
+	 */
+	DEFAULT {
+		@Override
+		public int computeHashCode(Object o) {
+
+			return mix(o == null ? 0 : o.hashCode());
+		}
+
+		@Override
+		public boolean equals(Object a, Object b) {
+
+			return Objects.equal(a, b);
+		}
+	},
+	/**
+	 * Reference equality and {@link System#identityHashCode(Object)}, mixed.
+	 */
+	IDENTITY {
+		@Override
+		public int computeHashCode(Object o) {
+
+			return mix(System.identityHashCode(o));
+		}
+
+		@Override
+		public boolean equals(Object a, Object b) {
+
+			return a == b;
+		}
+	},
+	/**
+	 * {@link Object#hashCode()} with the supplemental hash of Java 6's <code>HashMap</code>, which the lists used before strategies existed. Weaker
+	 * than {@link #DEFAULT}; kept for comparison.
+	 */
+	LEGACY {
+		@Override
+		public int computeHashCode(Object o) {
+
+			int h = o == null ? 0 : o.hashCode();
+			h ^= (h >>> 20) ^ (h >>> 12);
+			return h ^ (h >>> 7) ^ (h >>> 4);
+		}
+
+		@Override
+		public boolean equals(Object a, Object b) {
+
+			return Objects.equal(a, b);
+		}
+	};
+
+	/**
+	 * The murmur3 32-bit finalizer.
+	 */
+	public static int mix(int h) {
+
+		h ^= h >>> 16;
+		h *= 0x85EBCA6B;
+		h ^= h >>> 13;
+		h *= 0xC2B2AE35;
+		return h ^ (h >>> 16);
+	}
+
+}
@@ -9,35 +9,17 @@ public class IdentityLinkedHashList<E extends Object> extends LinkedHashList<E>
 
 	public IdentityLinkedHashList() {
 
-		super();
+		super(HashingStrategies.IDENTITY);
 	}
 
 	public IdentityLinkedHashList(int size) {
 
-		super(size);
+		super(size, HashingStrategies.IDENTITY);
 	}
 
 	public IdentityLinkedHashList(Collection<E> col) {
 
-		super(col);
-	}
-
-	@Override
-	protected int hash(Object o) {
-
-		return System.identityHashCode(o);
-	}
-
-	@Override
-	protected Entry seek(Object obj, int hash) {
-
-		for (Entry entry = hashTable[hash & mask]; entry != null; entry = entry.nextInBucket) {
-			if (obj == entry.key) {
-				return entry;
-			}
-		}
-
-		return null;
+		super(col, HashingStrategies.IDENTITY);
 	}
 
 	@Override
@@ -0,0 +1,822 @@
+package cofh.lib.util;
+
+import com.google.common.primitives.Ints;
+
+import gnu.trove.strategy.HashingStrategy;
+
+import java.util.AbstractCollection;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.NoSuchElementException;
+
+/**
+ * A duplicate-free list with the API of {@link LinkedHashList}, for large ordered work queues that are also accessed by position.
+ * <p>
+ * Elements are hashed for O(1) <code>contains</code> and lookup, linked in order for O(1) iteration, and kept in an implicit treap (a randomized
+ * binary tree ordered by position, with subtree sizes) so <code>get</code>, <code>set</code>, <code>add(int, E)</code>, <code>remove</code> and
+ * <code>indexOf</code> are O(log n) expected. The queue operations (<code>push</code>, <code>pop</code>, <code>shift</code>, <code>unshift</code>) are
+ * O(log n).
+ * <p>
+ * Hashing and equality come from a {@link HashingStrategy}, {@link HashingStrategies#DEFAULT} unless given; {@link #getBucketHistogram()} shows how well
+ * it spreads the elements.
+ * <p>
+ * Not thread safe.
+ */
+@SuppressWarnings("unchecked")
+public class IndexedLinkedHashList<E extends Object> extends AbstractCollection<E> implements List<E>, Cloneable, java.io.Serializable {
+
+	private static final long serialVersionUID = 2942180431765271954L;
+
+	protected static final class Node {
+
+		Object key;
+		int hash;
+		Node nextInBucket;
+
+		/* list order */
+		Node prev;
+		Node next;
+
+		/* tree */
+		Node parent;
+		Node left;
+		Node right;
+		int size = 1;
+		final int priority;
+
+		protected Node(Object key, int keyHash, int priority) {
+
+			this.key = key;
+			this.hash = keyHash;
+			this.priority = priority;
+		}
+	}
+
+	protected static int roundUpToPowerOf2(int number) {
+
+		return number >= Ints.MAX_POWER_OF_TWO ? Ints.MAX_POWER_OF_TWO : (number > 2) ? Integer.highestOneBit((number - 1) << 1) : 2;
+	}
+
+	protected transient Node head;
+	protected transient Node tail;
+	protected transient Node root;
+	protected transient int size;
+	protected transient int mask;
+	protected transient Node[] hashTable;
+	protected transient int modCount;
+	protected transient int rehashCount;
+	protected HashingStrategy<? super E> strategy;
+	private transient int seed = 0x2545F491;
+
+	public IndexedLinkedHashList() {
+
+		this(HashingStrategies.DEFAULT);
+	}
+
+	public IndexedLinkedHashList(HashingStrategy<? super E> strategy) {
+
+		this.strategy = strategy;
+		hashTable = new Node[8];
+		mask = 7;
+	}
+
+	public IndexedLinkedHashList(int size) {
+
+		this(size, HashingStrategies.DEFAULT);
+	}
+
+	public IndexedLinkedHashList(int size, HashingStrategy<? super E> strategy) {
+
+		this.strategy = strategy;
+		size = roundUpToPowerOf2(size);
+		hashTable = new Node[size];
+		mask = size - 1;
+	}
+
+	public IndexedLinkedHashList(Collection<E> col) {
+
+		this(col, HashingStrategies.DEFAULT);
+	}
+
+	public IndexedLinkedHashList(Collection<E> col, HashingStrategy<? super E> strategy) {
+
+		this.strategy = strategy;
+		int size = roundUpToPowerOf2(col.size());
+		hashTable = new Node[size];
+		mask = size - 1;
+		addAll(col);
+	}
+
+	protected int hash(Object n) {
+
+		return strategy.computeHashCode((E) n);
+	}
+
+	@Override
+	public int size() {
+
+		return size;
+	}
+
+	@Override
+	public boolean add(E obj) {
+
+		return push(obj);
+	}
+
+	@Override
+	public E set(int index, E obj) {
+
+		checkElementIndex(index);
+
+		Node e = nodeAt(index);
+		int hash = hash(obj);
+		Node other = seek(obj, hash);
+		if (other == e) {
+			Object old = e.key;
+			e.key = obj;
+			return (E) old;
+		}
+		if (other != null) {
+			throw new IllegalArgumentException("Duplicate entries not allowed");
+		}
+
+		++modCount;
+		Object old = e.key;
+		delete(e);
+		e.key = obj;
+		e.hash = hash;
+		insert(e);
+		return (E) old;
+	}
+
+	@Override
+	public void add(int index, E obj) {
+
+		checkPositionIndex(index);
+
+		int hash = hash(obj);
+		if (seek(obj, hash) != null) {
+			throw new IllegalArgumentException("Duplicate entries not allowed");
+		}
+		link(index, obj, hash);
+	}
+
+	@Override
+	public boolean addAll(int index, Collection<? extends E> c) {
+
+		if (c.size() == 0) {
+			return false;
+		}
+
+		for (E e : c) {
+			add(index++, e);
+		}
+
+		return true;
+	}
+
+	@Override
+	public E get(int index) {
+
+		checkElementIndex(index);
+		return (E) nodeAt(index).key;
+	}
+
+	@Override
+	public int indexOf(Object o) {
+
+		Node v = seek(o, hash(o));
+		if (v == null) {
+			return -1;
+		}
+		return rank(v);
+	}
+
+	@Override
+	public int lastIndexOf(Object o) {
+
+		return indexOf(o);
+	}
+
+	public boolean push(E obj) {
+
+		int hash = hash(obj);
+		if (seek(obj, hash) != null) {
+			return false;
+		}
+		link(size, obj, hash);
+		return true;
+	}
+
+	public E pop() {
+
+		Node e = tail;
+		if (e != null) {
+			return unlink(e);
+		}
+		return null;
+	}
+
+	public E peek() {
+
+		return tail != null ? (E) tail.key : null;
+	}
+
+	public E poke() {
+
+		return head != null ? (E) head.key : null;
+	}
+
+	public boolean unshift(E obj) {
+
+		int hash = hash(obj);
+		if (seek(obj, hash) != null) {
+			return false;
+		}
+		link(0, obj, hash);
+		return true;
+	}
+
+	public E shift() {
+
+		Node e = head;
+		if (e != null) {
+			return unlink(e);
+		}
+		return null;
+	}
+
+	@Override
+	public boolean contains(Object obj) {
+
+		return seek(obj, hash(obj)) != null;
+	}
+
+	@Override
+	public boolean remove(Object obj) {
+
+		Node e = seek(obj, hash(obj));
+		if (e == null) {
+			return false;
+		}
+
+		unlink(e);
+		return true;
+	}
+
+	@Override
+	public E remove(int index) {
+
+		checkElementIndex(index);
+
+		return unlink(nodeAt(index));
+	}
+
+	@Override
+	public void clear() {
+
+		++modCount;
+		for (int i = hashTable.length; i-- > 0;) {
+			hashTable[i] = null;
+		}
+		head = tail = root = null;
+		size = 0;
+	}
+
+	/* TREE */
+	private static int size(Node n) {
+
+		return n == null ? 0 : n.size;
+	}
+
+	protected Node nodeAt(int index) {
+
+		Node x = root;
+		for (;;) {
+			int l = size(x.left);
+			if (index < l) {
+				x = x.left;
+			} else if (index == l) {
+				return x;
+			} else {
+				index -= l + 1;
+				x = x.right;
+			}
+		}
+	}
+
+	protected int rank(Node n) {
+
+		int r = size(n.left);
+		for (Node x = n, p = x.parent; p != null; x = p, p = p.parent) {
+			if (x == p.right) {
+				r += size(p.left) + 1;
+			}
+		}
+		return r;
+	}
+
+	private int nextPriority() {
+
+		int x = seed;
+		x ^= x << 13;
+		x ^= x >>> 17;
+		x ^= x << 5;
+		return seed = x;
+	}
+
+	private void rotateUp(Node n) {
+
+		Node p = n.parent, g = p.parent;
+		if (n == p.left) {
+			p.left = n.right;
+			if (n.right != null) {
+				n.right.parent = p;
+			}
+			n.right = p;
+		} else {
+			p.right = n.left;
+			if (n.left != null) {
+				n.left.parent = p;
+			}
+			n.left = p;
+		}
+		p.parent = n;
+		n.parent = g;
+		if (g == null) {
+			root = n;
+		} else if (g.left == p) {
+			g.left = n;
+		} else {
+			g.right = n;
+		}
+		p.size = size(p.left) + size(p.right) + 1;
+		n.size = size(n.left) + size(n.right) + 1;
+	}
+
+	private void treeInsert(int index, Node n) {
+
+		if (root == null) {
+			root = n;
+			return;
+		}
+		Node x = root, p = null;
+		boolean left = false;
+		while (x != null) {
+			++x.size;
+			p = x;
+			int l = size(x.left);
+			if (index <= l) {
+				x = x.left;
+				left = true;
+			} else {
+				index -= l + 1;
+				x = x.right;
+				left = false;
+			}
+		}
+		n.parent = p;
+		if (left) {
+			p.left = n;
+		} else {
+			p.right = n;
+		}
+		while (n.parent != null && n.priority < n.parent.priority) {
+			rotateUp(n);
+		}
+	}
+
+	private void treeRemove(Node n) {
+
+		while (n.left != null || n.right != null) {
+			Node c;
+			if (n.left == null) {
+				c = n.right;
+			} else if (n.right == null) {
+				c = n.left;
+			} else {
+				c = n.left.priority < n.right.priority ? n.left : n.right;
+			}
+			rotateUp(c);
+		}
+		Node p = n.parent;
+		if (p == null) {
+			root = null;
+		} else {
+			if (p.left == n) {
+				p.left = null;
+			} else {
+				p.right = null;
+			}
+			for (; p != null; p = p.parent) {
+				--p.size;
+			}
+		}
+		n.parent = null;
+	}
+
+	/* LIST */
+	protected void link(int index, E obj, int hash) {
+
+		Node succ = index == size ? null : nodeAt(index);
+		Node n = new Node(obj, hash, nextPriority());
+		++modCount;
+		treeInsert(index, n);
+		insert(n);
+		rehashIfNecessary();
+
+		Node pred = succ == null ? tail : succ.prev;
+		n.prev = pred;
+		n.next = succ;
+		if (pred == null) {
+			head = n;
+		} else {
+			pred.next = n;
+		}
+		if (succ == null) {
+			tail = n;
+		} else {
+			succ.prev = n;
+		}
+	}
+
+	protected E unlink(Node x) {
+
+		++modCount;
+		final E element = (E) x.key;
+		final Node next = x.next;
+		final Node prev = x.prev;
+
+		if (prev == null) {
+			head = next;
+		} else {
+			prev.next = next;
+			x.prev = null;
+		}
+
+		if (next == null) {
+			tail = prev;
+		} else {
+			next.prev = prev;
+			x.next = null;
+		}
+
+		treeRemove(x);
+		delete(x);
+		return element;
+	}
+
+	/* HASH */
+	protected Node seek(Object obj, int hash) {
+
+		for (Node entry = hashTable[hash & mask]; entry != null; entry = entry.nextInBucket) {
+			if (hash == entry.hash && strategy.equals((E) obj, (E) entry.key)) {
+				return entry;
+			}
+		}
+
+		return null;
+	}
+
+	protected void insert(Node entry) {
+
+		int bucket = entry.hash & mask;
+		entry.nextInBucket = hashTable[bucket];
+		hashTable[bucket] = entry;
+		++size;
+	}
+
+	protected void delete(Node entry) {
+
+		int bucket = entry.hash & mask;
+		Node prev = null, cur = hashTable[bucket];
+		while (cur != entry) {
+			prev = cur;
+			cur = cur.nextInBucket;
+		}
+		if (prev == null) {
+			hashTable[bucket] = cur.nextInBucket;
+		} else {
+			prev.nextInBucket = cur.nextInBucket;
+		}
+		cur.nextInBucket = null;
+		--size;
+	}
+
+	protected void rehashIfNecessary() {
+
+		Node[] old = hashTable, newTable;
+		if (size > old.length * 2 && old.length < Ints.MAX_POWER_OF_TWO) {
+			int newTableSize = old.length * 2, newMask = newTableSize - 1;
+			newTable = new Node[newTableSize];
+
+			for (int bucket = old.length; bucket-- > 0;) {
+				Node entry = old[bucket];
+				while (entry != null) {
+					Node nextEntry = entry.nextInBucket;
+					int keyBucket = entry.hash & newMask;
+					entry.nextInBucket = newTable[keyBucket];
+					newTable[keyBucket] = entry;
+					entry = nextEntry;
+				}
+			}
+			hashTable = newTable;
+			mask = newMask;
+			++rehashCount;
+		}
+	}
+
+	private void writeObject(java.io.ObjectOutputStream s) throws java.io.IOException {
+
+		// Write out element count, and any hidden stuff
+		int expectedModCount = modCount;
+		s.defaultWriteObject();
+
+		// Write out size as capacity for behavioural compatibility with clone()
+		s.writeInt(size);
+
+		// Write out all elements in the proper order.
+		for (Node n = head; n != null; n = n.next) {
+			s.writeObject(n.key);
+		}
+
+		if (modCount != expectedModCount) {
+			throw new ConcurrentModificationException();
+		}
+	}
+
+	private void readObject(java.io.ObjectInputStream s) throws java.io.IOException, ClassNotFoundException {
+
+		head = tail = root = null;
+		hashTable = new Node[8];
+		mask = 7;
+		size = 0;
+		seed = 0x2545F491;
+
+		// Read in size, and any hidden stuff
+		s.defaultReadObject();
+		if (strategy == null) {
+			// written before strategies existed
+			strategy = HashingStrategies.DEFAULT;
+		}
+
+		// Read in capacity
+		int size = s.readInt();
+
+		if (size > 0) {
+
+			// Read in all elements in the proper order.
+			for (int i = 0; i < size; i++) {
+				add((E) s.readObject());
+			}
+		}
+	}
+
+	/* DIAGNOSTICS */
+	/**
+	 * @return The number of times the hash table has grown since this list was created.
+	 */
+	public int getRehashCount() {
+
+		return rehashCount;
+	}
+
+	/**
+	 * @return The number of elements in the fullest bucket.
+	 */
+	public int getMaxChainLength() {
+
+		return getBucketHistogram().length - 1;
+	}
+
+	/**
+	 * @return An array whose element <code>n</code> is the number of buckets holding exactly <code>n</code> elements; its length is one more than the
+	 *         longest chain.
+	 */
+	public int[] getBucketHistogram() {
+
+		int[] histogram = new int[4];
+		int max = 0;
+		for (Node bucket : hashTable) {
+			int n = 0;
+			for (Node entry = bucket; entry != null; entry = entry.nextInBucket) {
+				++n;
+			}
+			if (n >= histogram.length) {
+				histogram = Arrays.copyOf(histogram, Math.max(n + 1, histogram.length * 2));
+			}
+			++histogram[n];
+			max = Math.max(max, n);
+		}
+		return Arrays.copyOf(histogram, max + 1);
+	}
+
+	@Override
+	public IndexedLinkedHashList<E> clone() {
+
+		return new IndexedLinkedHashList<E>(this, strategy);
+	}
+
+	@Override
+	public List<E> subList(int fromIndex, int toIndex) {
+
+		throw new UnsupportedOperationException();
+	}
+
+	@Override
+	public Iterator<E> iterator() {
+
+		return listIterator();
+	}
+
+	@Override
+	public ListIterator<E> listIterator() {
+
+		return listIterator(0);
+	}
+
+	@Override
+	public ListIterator<E> listIterator(int index) {
+
+		checkPositionIndex(index);
+		return new ListItr(index);
+	}
+
+	public Iterator<E> descendingIterator() {
+
+		return new DescendingIterator();
+	}
+
+	protected boolean isElementIndex(int index) {
+
+		return index >= 0 && index < size;
+	}
+
+	protected boolean isPositionIndex(int index) {
+
+		return index >= 0 && index <= size;
+	}
+
+	protected String outOfBoundsMsg(int index) {
+
+		return "Index: " + index + ", Size: " + size;
+	}
+
+	protected void checkElementIndex(int index) {
+
+		if (!isElementIndex(index)) {
+			throw new IndexOutOfBoundsException(outOfBoundsMsg(index));
+		}
+	}
+
+	protected void checkPositionIndex(int index) {
+
+		if (!isPositionIndex(index)) {
+			throw new IndexOutOfBoundsException(outOfBoundsMsg(index));
+		}
+	}
+
+	protected class ListItr implements ListIterator<E> {
+
+		protected Node lastReturned = null;
+		protected Node next;
+		protected int nextIndex;
+		protected int expectedModCount = modCount;
+
+		protected ListItr(int index) {
+
+			next = (index == size) ? null : nodeAt(index);
+			nextIndex = index;
+		}
+
+		@Override
+		public boolean hasNext() {
+
+			return nextIndex < size;
+		}
+
+		@Override
+		public E next() {
+
+			checkForComodification();
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+
+			lastReturned = next;
+			next = next.next;
+			nextIndex++;
+			return (E) lastReturned.key;
+		}
+
+		@Override
+		public boolean hasPrevious() {
+
+			return nextIndex > 0;
+		}
+
+		@Override
+		public E previous() {
+
+			checkForComodification();
+			if (!hasPrevious()) {
+				throw new NoSuchElementException();
+			}
+
+			lastReturned = next = (next == null) ? tail : next.prev;
+			nextIndex--;
+			return (E) lastReturned.key;
+		}
+
+		@Override
+		public int nextIndex() {
+
+			return nextIndex;
+		}
+
+		@Override
+		public int previousIndex() {
+
+			return nextIndex - 1;
+		}
+
+		@Override
+		public void remove() {
+
+			checkForComodification();
+			if (lastReturned == null) {
+				throw new IllegalStateException();
+			}
+
+			Node lastNext = lastReturned.next;
+			unlink(lastReturned);
+			if (next == lastReturned) {
+				next = lastNext;
+			} else {
+				nextIndex--;
+			}
+			lastReturned = null;
+			expectedModCount = modCount;
+		}
+
+		@Override
+		public void set(E e) {
+
+			checkForComodification();
+			if (lastReturned == null) {
+				throw new IllegalStateException();
+			}
+
+			IndexedLinkedHashList.this.set(rank(lastReturned), e);
+			expectedModCount = modCount;
+		}
+
+		@Override
+		public void add(E e) {
+
+			checkForComodification();
+			lastReturned = null;
+			IndexedLinkedHashList.this.add(nextIndex, e);
+			nextIndex++;
+			expectedModCount = modCount;
+		}
+
+		protected final void checkForComodification() {
+
+			if (modCount != expectedModCount) {
+				throw new ConcurrentModificationException();
+			}
+		}
+
+	}
+
+	protected class DescendingIterator implements Iterator<E> {
+
+		protected final ListItr itr = new ListItr(size());
+
+		@Override
+		public boolean hasNext() {
+
+			return itr.hasPrevious();
+		}
+
+		@Override
+		public E next() {
+
+			return itr.previous();
+		}
+
+		@Override
+		public void remove() {
+
+			itr.remove();
+		}
+
+	}
+
+}
@@ -1,9 +1,11 @@
 package cofh.lib.util;
 
-import com.google.common.base.Objects;
 import com.google.common.primitives.Ints;
 
+import gnu.trove.strategy.HashingStrategy;
+
 import java.util.AbstractCollection;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.ConcurrentModificationException;
 import java.util.Iterator;
@@ -11,6 +13,18 @@ import java.util.List;
 import java.util.ListIterator;
 import java.util.NoSuchElementException;
 
+/**
+ * A duplicate-free list with hashed O(1) <code>contains</code> and <code>remove</code>, usable as a queue through <code>push</code>, <code>pop</code>,
+ * <code>shift</code> and <code>unshift</code>.
+ * <p>
+ * Hashing and equality come from a {@link HashingStrategy}, {@link HashingStrategies#DEFAULT} unless given; {@link #getBucketHistogram()} shows how well
+ * it spreads the elements.
+ * <p>
+ * Positional methods follow {@link List}: <code>add(int, E)</code> inserts before the element at the index, <code>set</code> replaces the element in place,
+ * and <code>indexOf</code> returns -1 only for an element not in the list.
+ * <p>
+ * Not thread safe. For a queue shared between threads use {@link ConcurrentLinkedHashSet}; for fast positional access use {@link IndexedLinkedHashList}.
+ */
 @SuppressWarnings("unchecked")
 public class LinkedHashList<E extends Object> extends AbstractCollection<E> implements List<E>, Cloneable, java.io.Serializable {
 
@@ -42,15 +56,29 @@ public class LinkedHashList<E extends Object> extends AbstractCollection<E> impl
 	protected transient int mask;
 	protected transient Entry[] hashTable;
 	protected transient int modCount;
+	protected transient int rehashCount;
+	protected HashingStrategy<? super E> strategy;
 
 	public LinkedHashList() {
 
+		this(HashingStrategies.DEFAULT);
+	}
+
+	public LinkedHashList(HashingStrategy<? super E> strategy) {
+
+		this.strategy = strategy;
 		hashTable = new Entry[8];
 		mask = 7;
 	}
 
 	public LinkedHashList(int size) {
 
+		this(size, HashingStrategies.DEFAULT);
+	}
+
+	public LinkedHashList(int size, HashingStrategy<? super E> strategy) {
+
+		this.strategy = strategy;
 		size = roundUpToPowerOf2(size);
 		hashTable = new Entry[size];
 		mask = size - 1;
@@ -58,6 +86,12 @@ public class LinkedHashList<E extends Object> extends AbstractCollection<E> impl
 
 	public LinkedHashList(Collection<E> col) {
 
+		this(col, HashingStrategies.DEFAULT);
+	}
+
+	public LinkedHashList(Collection<E> col, HashingStrategy<? super E> strategy) {
+
+		this.strategy = strategy;
 		int size = roundUpToPowerOf2(col.size());
 		hashTable = new Entry[size];
 		mask = size - 1;
@@ -66,9 +100,7 @@ public class LinkedHashList<E extends Object> extends AbstractCollection<E> impl
 
 	protected int hash(Object n) {
 
-		int h = n == null ? 0 : n.hashCode();
-		h ^= (h >>> 20) ^ (h >>> 12);
-		return h ^ (h >>> 7) ^ (h >>> 4);
+		return strategy.computeHashCode((E) n);
 	}
 
 	@Override
@@ -77,7 +109,7 @@ public class LinkedHashList<E extends Object> extends AbstractCollection<E> impl
 		return size;
 	}
 
-	protected synchronized boolean add(E obj, int hash) {
+	protected boolean add(E obj, int hash) {
 
 		if (seek(obj, hash) != null) {
 			return false;
@@ -116,16 +148,13 @@ public class LinkedHashList<E extends Object> extends AbstractCollection<E> impl
 			throw new IllegalArgumentException("Duplicate entries not allowed");
 		}
 
-		++modCount;
 		Entry e = index(index);
-		delete(e);
-		insert(new Entry(obj, hash));
-
-		return (E) e.key;
+		linkBefore(obj, e);
+		return unlink(e);
 	}
 
 	@Override
-	public synchronized void add(int index, E obj) {
+	public void add(int index, E obj) {
 
 		checkPositionIndex(index);
 
@@ -139,17 +168,7 @@ public class LinkedHashList<E extends Object> extends AbstractCollection<E> impl
 			return;
 		}
 
-		++modCount;
-		Entry e = index(index);
-		Entry n = new Entry(obj, hash);
-		n.next = e.next;
-		n.prev = e;
-		e.next = n;
-		if (n.next != null) {
-			n.next.prev = n;
-		}
-		insert(n);
-		rehashIfNecessary();
+		linkBefore(obj, index(index));
 	}
 
 	@Override
@@ -180,14 +199,11 @@ public class LinkedHashList<E extends Object> extends AbstractCollection<E> impl
 		if (v == null) {
 			return -1;
 		}
-		Entry n = head;
-		for (int i = 0; n != tail; ++i) {
-			if (v == n) {
-				return i;
-			}
-			n = n.next;
+		int i = 0;
+		for (Entry n = head; n != v; n = n.next) {
+			++i;
 		}
-		return size;
+		return i;
 	}
 
 	@Override
@@ -283,7 +299,7 @@ public class LinkedHashList<E extends Object> extends AbstractCollection<E> impl
 	protected Entry seek(Object obj, int hash) {
 
 		for (Entry entry = hashTable[hash & mask]; entry != null; entry = entry.nextInBucket) {
-			if (hash == entry.hash && Objects.equal(obj, entry.key)) {
+			if (hash == entry.hash && strategy.equals((E) obj, (E) entry.key)) {
 				return entry;
 			}
 		}
@@ -293,15 +309,13 @@ public class LinkedHashList<E extends Object> extends AbstractCollection<E> impl
 
 	protected void insert(Entry entry) {
 
-		synchronized (hashTable) {
-			int bucket = entry.hash & mask;
-			entry.nextInBucket = hashTable[bucket];
-			hashTable[bucket] = entry;
-		}
+		int bucket = entry.hash & mask;
+		entry.nextInBucket = hashTable[bucket];
+		hashTable[bucket] = entry;
 		++size;
 	}
 
-	protected synchronized boolean linkBefore(E obj, Entry succ) {
+	protected boolean linkBefore(E obj, Entry succ) {
 
 		int hash = hash(obj);
 		if (seek(obj, hash) != null) {
@@ -326,25 +340,21 @@ public class LinkedHashList<E extends Object> extends AbstractCollection<E> impl
 
 	protected void delete(Entry entry) {
 
-		l: synchronized (hashTable) {
-			int bucket = entry.hash & mask;
-			Entry prev = null, cur = hashTable[bucket];
-			if (cur == entry) {
-				hashTable[bucket] = cur.nextInBucket;
-				break l;
-			}
-			for (; true; cur = cur.nextInBucket) {
-				if (cur == entry) {
-					prev.nextInBucket = entry.nextInBucket;
-					break l;
-				}
-				prev = cur;
-			}
+		int bucket = entry.hash & mask;
+		Entry prev = null, cur = hashTable[bucket];
+		while (cur != entry) {
+			prev = cur;
+			cur = cur.nextInBucket;
+		}
+		if (prev == null) {
+			hashTable[bucket] = entry.nextInBucket;
+		} else {
+			prev.nextInBucket = entry.nextInBucket;
 		}
 		--size;
 	}
 
-	protected synchronized E unlink(Entry x) {
+	protected E unlink(Entry x) {
 
 		modCount++;
 		final E element = (E) x.key;
@@ -373,23 +383,22 @@ public class LinkedHashList<E extends Object> extends AbstractCollection<E> impl
 
 		Entry[] old = hashTable, newTable;
 		if (size > old.length * 2 && old.length < Ints.MAX_POWER_OF_TWO) {
-			synchronized (hashTable) {
-				int newTableSize = old.length * 2, newMask = newTableSize - 1;
-				newTable = new Entry[newTableSize];
-
-				for (int bucket = old.length; bucket-- > 0;) {
-					Entry entry = old[bucket];
-					while (entry != null) {
-						Entry nextEntry = entry.nextInBucket;
-						int keyBucket = entry.hash & newMask;
-						entry.nextInBucket = newTable[keyBucket];
-						newTable[keyBucket] = entry;
-						entry = nextEntry;
-					}
+			int newTableSize = old.length * 2, newMask = newTableSize - 1;
+			newTable = new Entry[newTableSize];
+
+			for (int bucket = old.length; bucket-- > 0;) {
+				Entry entry = old[bucket];
+				while (entry != null) {
+					Entry nextEntry = entry.nextInBucket;
+					int keyBucket = entry.hash & newMask;
+					entry.nextInBucket = newTable[keyBucket];
+					newTable[keyBucket] = entry;
+					entry = nextEntry;
 				}
-				hashTable = newTable;
-				mask = newMask;
 			}
+			hashTable = newTable;
+			mask = newMask;
+			++rehashCount;
 		}
 	}
 
@@ -423,6 +432,10 @@ public class LinkedHashList<E extends Object> extends AbstractCollection<E> impl
 
 		// Read in size, and any hidden stuff
 		s.defaultReadObject();
+		if (strategy == null) {
+			// written before strategies existed
+			strategy = HashingStrategies.DEFAULT;
+		}
 
 		// Read in capacity
 		int size = s.readInt();
@@ -436,10 +449,49 @@ public class LinkedHashList<E extends Object> extends AbstractCollection<E> impl
 		}
 	}
 
+	/* DIAGNOSTICS */
+	/**
+	 * @return The number of times the hash table has grown since this list was created.
+	 */
+	public int getRehashCount() {
+
+		return rehashCount;
+	}
+
+	/**
+	 * @return The number of elements in the fullest bucket.
+	 */
+	public int getMaxChainLength() {
+
+		return getBucketHistogram().length - 1;
+	}
+
+	/**
+	 * @return An array whose element <code>n</code> is the number of buckets holding exactly <code>n</code> elements; its length is one more than the
+	 *         longest chain.
+	 */
+	public int[] getBucketHistogram() {
+
+		int[] histogram = new int[4];
+		int max = 0;
+		for (Entry bucket : hashTable) {
+			int n = 0;
+			for (Entry entry = bucket; entry != null; entry = entry.nextInBucket) {
+				++n;
+			}
+			if (n >= histogram.length) {
+				histogram = Arrays.copyOf(histogram, Math.max(n + 1, histogram.length * 2));
+			}
+			++histogram[n];
+			max = Math.max(max, n);
+		}
+		return Arrays.copyOf(histogram, max + 1);
+	}
+
 	@Override
 	public LinkedHashList<E> clone() {
 
-		return new LinkedHashList<E>(this);
+		return new LinkedHashList<E>(this, strategy);
 	}
 
 	@Override
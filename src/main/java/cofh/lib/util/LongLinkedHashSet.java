@@ -0,0 +1,444 @@
+package cofh.lib.util;
+
+import gnu.trove.iterator.TLongIterator;
+import gnu.trove.procedure.TLongProcedure;
+
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.NoSuchElementException;
+
+/**
+ * An insertion-ordered set of primitive longs with the queue API of {@link LinkedHashList}, meant for block positions packed with
+ * {@link #pack(int, int, int)}.
+ * <p>
+ * Elements live in parallel primitive arrays linked in order by index, and are found through an open-addressed table of those indices, so nothing is
+ * allocated per element and <code>contains</code>, <code>remove</code>, <code>push</code>, <code>pop</code>, <code>shift</code> and <code>unshift</code>
+ * are O(1). Hashing mixes all 64 bits, so neighbouring positions spread evenly.
+ * <p>
+ * Not thread safe.
+ */
+public class LongLinkedHashSet {
+
+	/* PACKING: 26 bits x, 12 bits y, 26 bits z */
+	public static long pack(int x, int y, int z) {
+
+		return (long) x << 38 | (long) (y & 0xFFF) << 26 | z & 0x3FFFFFFL;
+	}
+
+	public static int unpackX(long pos) {
+
+		return (int) (pos >> 38);
+	}
+
+	public static int unpackY(long pos) {
+
+		return (int) (pos << 26 >> 52);
+	}
+
+	public static int unpackZ(long pos) {
+
+		return (int) (pos << 38 >> 38);
+	}
+
+	private static final int NONE = -1;
+
+	/* entries */
+	protected long[] elements;
+	protected int[] before;
+	protected int[] after;
+	protected int head = NONE;
+	protected int tail = NONE;
+	protected int free = NONE;
+	protected int used;
+
+	/* index: entry + 1, or 0 if the slot is empty */
+	protected int[] table;
+	protected int mask;
+
+	protected int size;
+	protected int modCount;
+
+	public LongLinkedHashSet() {
+
+		this(16);
+	}
+
+	public LongLinkedHashSet(int capacity) {
+
+		capacity = Math.max(capacity, 4);
+		elements = new long[capacity];
+		before = new int[capacity];
+		after = new int[capacity];
+		int tableSize = LinkedHashList.roundUpToPowerOf2(capacity * 2);
+		table = new int[tableSize];
+		mask = tableSize - 1;
+	}
+
+	protected static int hash(long v) {
+
+		// murmur3 finalizer
+		v ^= v >>> 33;
+		v *= 0xFF51AFD7ED558CCDL;
+		v ^= v >>> 33;
+		v *= 0xC4CEB9FE1A85EC53L;
+		v ^= v >>> 33;
+		return (int) v;
+	}
+
+	public int size() {
+
+		return size;
+	}
+
+	public boolean isEmpty() {
+
+		return size == 0;
+	}
+
+	public boolean contains(long v) {
+
+		return seek(v) >= 0;
+	}
+
+	public boolean contains(int x, int y, int z) {
+
+		return seek(pack(x, y, z)) >= 0;
+	}
+
+	/**
+	 * Adds <code>v</code> at the tail if it is not already present.
+	 */
+	public boolean add(long v) {
+
+		return push(v);
+	}
+
+	public boolean add(int x, int y, int z) {
+
+		return push(pack(x, y, z));
+	}
+
+	public boolean push(long v) {
+
+		int slot = findSlot(v);
+		if (slot < 0) {
+			return false;
+		}
+		int e = newEntry(v, slot);
+		before[e] = tail;
+		after[e] = NONE;
+		if (tail == NONE) {
+			head = e;
+		} else {
+			after[tail] = e;
+		}
+		tail = e;
+		rehashIfNecessary();
+		return true;
+	}
+
+	/**
+	 * Adds <code>v</code> at the head if it is not already present.
+	 */
+	public boolean unshift(long v) {
+
+		int slot = findSlot(v);
+		if (slot < 0) {
+			return false;
+		}
+		int e = newEntry(v, slot);
+		before[e] = NONE;
+		after[e] = head;
+		if (head == NONE) {
+			tail = e;
+		} else {
+			before[head] = e;
+		}
+		head = e;
+		rehashIfNecessary();
+		return true;
+	}
+
+	/**
+	 * Removes and returns the tail.
+	 *
+	 * @throws NoSuchElementException
+	 *             If empty.
+	 */
+	public long pop() {
+
+		if (tail == NONE) {
+			throw new NoSuchElementException();
+		}
+		long v = elements[tail];
+		removeEntry(tail);
+		return v;
+	}
+
+	/**
+	 * Removes and returns the head.
+	 *
+	 * @throws NoSuchElementException
+	 *             If empty.
+	 */
+	public long shift() {
+
+		if (head == NONE) {
+			throw new NoSuchElementException();
+		}
+		long v = elements[head];
+		removeEntry(head);
+		return v;
+	}
+
+	/**
+	 * @return The tail.
+	 * @throws NoSuchElementException
+	 *             If empty.
+	 */
+	public long peek() {
+
+		if (tail == NONE) {
+			throw new NoSuchElementException();
+		}
+		return elements[tail];
+	}
+
+	/**
+	 * @return The head.
+	 * @throws NoSuchElementException
+	 *             If empty.
+	 */
+	public long poke() {
+
+		if (head == NONE) {
+			throw new NoSuchElementException();
+		}
+		return elements[head];
+	}
+
+	public boolean remove(long v) {
+
+		int slot = seek(v);
+		if (slot < 0) {
+			return false;
+		}
+		removeEntry(table[slot] - 1);
+		return true;
+	}
+
+	public boolean remove(int x, int y, int z) {
+
+		return remove(pack(x, y, z));
+	}
+
+	public void clear() {
+
+		++modCount;
+		Arrays.fill(table, 0);
+		head = tail = free = NONE;
+		used = 0;
+		size = 0;
+	}
+
+	/**
+	 * Calls <code>procedure</code> for every element, head to tail, until it returns false. The set must not be modified meanwhile.
+	 *
+	 * @return False if <code>procedure</code> stopped the iteration.
+	 */
+	public boolean forEach(TLongProcedure procedure) {
+
+		for (int e = head; e != NONE; e = after[e]) {
+			if (!procedure.execute(elements[e])) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * @return The elements, head to tail.
+	 */
+	public long[] toArray() {
+
+		long[] r = new long[size];
+		int i = 0;
+		for (int e = head; e != NONE; e = after[e]) {
+			r[i++] = elements[e];
+		}
+		return r;
+	}
+
+	/**
+	 * Iterates head to tail; <code>remove</code> is supported.
+	 */
+	public TLongIterator iterator() {
+
+		return new Itr();
+	}
+
+	/* INTERNAL */
+	/**
+	 * @return The table slot holding <code>v</code>, or -1.
+	 */
+	protected int seek(long v) {
+
+		int[] table = this.table;
+		int mask = this.mask;
+		for (int i = hash(v) & mask;; i = (i + 1) & mask) {
+			int e = table[i];
+			if (e == 0) {
+				return -1;
+			}
+			if (elements[e - 1] == v) {
+				return i;
+			}
+		}
+	}
+
+	/**
+	 * @return The empty table slot <code>v</code> belongs in, or -1 if it is already present.
+	 */
+	protected int findSlot(long v) {
+
+		int[] table = this.table;
+		int mask = this.mask;
+		for (int i = hash(v) & mask;; i = (i + 1) & mask) {
+			int e = table[i];
+			if (e == 0) {
+				return i;
+			}
+			if (elements[e - 1] == v) {
+				return -1;
+			}
+		}
+	}
+
+	private int newEntry(long v, int slot) {
+
+		++modCount;
+		int e;
+		if (free != NONE) {
+			e = free;
+			free = after[e];
+		} else {
+			if (used == elements.length) {
+				int newCapacity = used + (used >> 1);
+				elements = Arrays.copyOf(elements, newCapacity);
+				before = Arrays.copyOf(before, newCapacity);
+				after = Arrays.copyOf(after, newCapacity);
+			}
+			e = used++;
+		}
+		elements[e] = v;
+		table[slot] = e + 1;
+		++size;
+		return e;
+	}
+
+	private void removeEntry(int e) {
+
+		++modCount;
+		int p = before[e], n = after[e];
+		if (p == NONE) {
+			head = n;
+		} else {
+			after[p] = n;
+		}
+		if (n == NONE) {
+			tail = p;
+		} else {
+			before[n] = p;
+		}
+		deleteSlot(seek(elements[e]));
+		after[e] = free;
+		free = e;
+		--size;
+	}
+
+	/**
+	 * Empties <code>slot</code> and shifts back any entries after it in the probe sequence, so no tombstones are needed.
+	 */
+	private void deleteSlot(int slot) {
+
+		int[] table = this.table;
+		int mask = this.mask;
+		for (int i = (slot + 1) & mask;; i = (i + 1) & mask) {
+			int e = table[i];
+			if (e == 0) {
+				break;
+			}
+			int home = hash(elements[e - 1]) & mask;
+			// move it into the hole if the hole lies cyclically between its home slot and its current slot
+			if (((i - home) & mask) >= ((i - slot) & mask)) {
+				table[slot] = e;
+				slot = i;
+			}
+		}
+		table[slot] = 0;
+	}
+
+	private void rehashIfNecessary() {
+
+		if (size * 2 > table.length && table.length < 1 << 30) {
+			rehash(table.length * 2);
+		}
+	}
+
+	private void rehash(int newSize) {
+
+		int[] newTable = new int[newSize];
+		int newMask = newSize - 1;
+		for (int e = head; e != NONE; e = after[e]) {
+			int i = hash(elements[e]) & newMask;
+			while (newTable[i] != 0) {
+				i = (i + 1) & newMask;
+			}
+			newTable[i] = e + 1;
+		}
+		table = newTable;
+		mask = newMask;
+	}
+
+	private class Itr implements TLongIterator {
+
+		private int next = head;
+		private int lastReturned = NONE;
+		private int expectedModCount = modCount;
+
+		@Override
+		public boolean hasNext() {
+
+			return next != NONE;
+		}
+
+		@Override
+		public long next() {
+
+			if (modCount != expectedModCount) {
+				throw new ConcurrentModificationException();
+			}
+			if (next == NONE) {
+				throw new NoSuchElementException();
+			}
+			lastReturned = next;
+			next = after[next];
+			return elements[lastReturned];
+		}
+
+		@Override
+		public void remove() {
+
+			if (lastReturned == NONE) {
+				throw new IllegalStateException();
+			}
+			if (modCount != expectedModCount) {
+				throw new ConcurrentModificationException();
+			}
+			removeEntry(lastReturned);
+			lastReturned = NONE;
+			expectedModCount = modCount;
+		}
+	}
+
+}
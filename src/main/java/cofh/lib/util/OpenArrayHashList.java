@@ -0,0 +1,863 @@
+package cofh.lib.util;
+
+import com.google.common.primitives.Ints;
+
+import gnu.trove.procedure.TObjectProcedure;
+import gnu.trove.strategy.HashingStrategy;
+
+import java.util.AbstractCollection;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Entry-free variant of {@link ArrayHashList}. Elements are kept in insertion order in a backing array while membership is tracked by an open-addressed
+ * (linear probing) table of parallel key and hash arrays, so no objects are allocated per element and lookups do not chase bucket chains.
+ * <p>
+ * The contract matches {@link ArrayHashList}: duplicate entries are rejected, <code>contains</code> is O(1) and <code>remove(Object)</code> is O(1) on the
+ * table plus the array shift. Hashing and equality come from a {@link HashingStrategy}, {@link HashingStrategies#DEFAULT} unless given.
+ */
+@SuppressWarnings("unchecked")
+public class OpenArrayHashList<E extends Object> extends AbstractCollection<E> implements List<E>, Cloneable, java.io.Serializable {
+
+	private static final long serialVersionUID = -2571433812004364371L;
+
+	/**
+	 * Stored in the key table in place of <code>null</code>, which marks an empty slot.
+	 */
+	private static final Object NULL_KEY = new Object();
+
+	private static int roundUpToPowerOf2(int number) {
+
+		return number >= Ints.MAX_POWER_OF_TWO ? Ints.MAX_POWER_OF_TWO : (number > 2) ? Integer.highestOneBit((number - 1) << 1) : 2;
+	}
+
+	private static int tableSizeFor(int size) {
+
+		// keep the table at most half full
+		return size >= Ints.MAX_POWER_OF_TWO >> 1 ? Ints.MAX_POWER_OF_TWO : Math.max(roundUpToPowerOf2(size << 1), 8);
+	}
+
+	private transient Object[] elementData;
+	protected transient int size;
+	protected transient int mask;
+	protected transient Object[] hashKeys;
+	protected transient int[] hashCodes;
+	protected transient int modCount;
+	protected transient int rehashCount;
+	protected HashingStrategy<? super E> strategy;
+
+	public OpenArrayHashList() {
+
+		this(HashingStrategies.DEFAULT);
+	}
+
+	public OpenArrayHashList(HashingStrategy<? super E> strategy) {
+
+		this.strategy = strategy;
+		elementData = new Object[10];
+		hashKeys = new Object[16];
+		hashCodes = new int[16];
+		mask = 15;
+	}
+
+	public OpenArrayHashList(int size) {
+
+		this(size, HashingStrategies.DEFAULT);
+	}
+
+	public OpenArrayHashList(int size, HashingStrategy<? super E> strategy) {
+
+		this.strategy = strategy;
+		elementData = new Object[size];
+		size = tableSizeFor(size);
+		hashKeys = new Object[size];
+		hashCodes = new int[size];
+		mask = size - 1;
+	}
+
+	public OpenArrayHashList(Collection<E> col) {
+
+		this(col, HashingStrategies.DEFAULT);
+	}
+
+	public OpenArrayHashList(Collection<E> col, HashingStrategy<? super E> strategy) {
+
+		this.strategy = strategy;
+		int size = col.size();
+		elementData = new Object[size];
+		size = tableSizeFor(size);
+		hashKeys = new Object[size];
+		hashCodes = new int[size];
+		mask = size - 1;
+		addAll(col);
+	}
+
+	protected int hash(Object n) {
+
+		return strategy.computeHashCode((E) n);
+	}
+
+	@Override
+	public int size() {
+
+		return size;
+	}
+
+	protected void add(E obj, int hash) {
+
+		ensureCapacityInternal(size + 1);
+		elementData[size++] = obj;
+		insert(obj, hash);
+		rehashIfNecessary();
+	}
+
+	@Override
+	public boolean add(E obj) {
+
+		int hash = hash(obj);
+		if (seek(obj, hash) >= 0) {
+			return false;
+		}
+
+		add(obj, hash);
+
+		return true;
+	}
+
+	@Override
+	public E set(int index, E obj) {
+
+		checkElementIndex(index);
+
+		int hash = hash(obj);
+		if (seek(obj, hash) >= 0) {
+			// return null;
+			throw new IllegalArgumentException("Duplicate entries not allowed");
+		}
+
+		++modCount;
+		E old = index(index);
+		delete(seek(old, hash(old)));
+		elementData[index] = obj;
+		insert(obj, hash);
+
+		return old;
+	}
+
+	@Override
+	public void add(int index, E obj) {
+
+		checkPositionIndex(index);
+
+		int hash = hash(obj);
+		if (seek(obj, hash) >= 0) {
+			throw new IllegalArgumentException("Duplicate entries not allowed");
+		}
+
+		if (index == size) {
+			add(obj, hash);
+			return;
+		}
+
+		ensureCapacityInternal(++size);
+		System.arraycopy(elementData, index, elementData, index + 1, size - index - 1);
+		elementData[index] = obj;
+		insert(obj, hash);
+		rehashIfNecessary();
+	}
+
+	/**
+	 * Appends every element of <code>c</code> not already present, growing the array and key table once up front.
+	 */
+	@Override
+	public boolean addAll(Collection<? extends E> c) {
+
+		int n = c.size();
+		if (n == 0) {
+			return false;
+		}
+		ensureCapacityInternal(size + n);
+		int tableSize = tableSizeFor(size + n);
+		if (tableSize > hashKeys.length) {
+			rehash(tableSize);
+		}
+
+		int oldSize = size;
+		for (E obj : c) {
+			int hash = hash(obj);
+			if (seek(obj, hash) < 0) {
+				elementData[size++] = obj;
+				insert(obj, hash);
+			}
+		}
+		return size != oldSize;
+	}
+
+	@Override
+	public boolean addAll(int index, Collection<? extends E> c) {
+
+		if (c.size() == 0) {
+			return false;
+		}
+
+		for (E e : c) {
+			add(index++, e);
+		}
+
+		return true;
+	}
+
+	@Override
+	public E get(int index) {
+
+		checkElementIndex(index);
+		return index(index);
+	}
+
+	@Override
+	public int indexOf(Object obj) {
+
+		int slot = seek(obj, hash(obj));
+		if (slot < 0) {
+			return -1;
+		}
+
+		Object o = unmaskNull(hashKeys[slot]);
+		Object[] data = elementData;
+		int i = size;
+		while (i-- > 0) {
+			if (data[i] == o) {
+				break;
+			}
+		}
+		return i;
+	}
+
+	@Override
+	public int lastIndexOf(Object o) {
+
+		return indexOf(o);
+	}
+
+	@Override
+	public boolean contains(Object obj) {
+
+		return seek(obj, hash(obj)) >= 0;
+	}
+
+	/**
+	 * Calls <code>procedure</code> for every element in order, until it returns false. Allocates nothing; the list must not be modified meanwhile.
+	 *
+	 * @return False if <code>procedure</code> stopped the iteration.
+	 */
+	public boolean forEachElement(TObjectProcedure<? super E> procedure) {
+
+		Object[] data = elementData;
+		for (int i = 0, e = size; i < e; ++i) {
+			if (!procedure.execute((E) data[i])) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Removes every element for which <code>filter</code> returns true, compacting the array in a single pass.
+	 *
+	 * @return True if any element was removed.
+	 */
+	public boolean removeMatching(TObjectProcedure<? super E> filter) {
+
+		Object[] data = elementData;
+		int w = 0;
+		for (int r = 0, e = size; r < e; ++r) {
+			Object o = data[r];
+			if (!filter.execute((E) o)) {
+				data[r] = data[w];
+				data[w++] = o;
+			}
+		}
+		return truncate(w);
+	}
+
+	@Override
+	public boolean removeAll(Collection<?> c) {
+
+		return batchRemove(c, true);
+	}
+
+	@Override
+	public boolean retainAll(Collection<?> c) {
+
+		return batchRemove(c, false);
+	}
+
+	private boolean batchRemove(Collection<?> c, boolean contained) {
+
+		Object[] data = elementData;
+		int w = 0;
+		for (int r = 0, e = size; r < e; ++r) {
+			Object o = data[r];
+			if (c.contains(o) != contained) {
+				data[r] = data[w];
+				data[w++] = o;
+			}
+		}
+		return truncate(w);
+	}
+
+	/**
+	 * Drops the elements from <code>newSize</code> on, which a stable partition has moved to the end, from the key table and the array.
+	 */
+	private boolean truncate(int newSize) {
+
+		int removed = size - newSize;
+		if (removed == 0) {
+			return false;
+		}
+		++modCount;
+		Object[] data = elementData;
+		if (removed > newSize) {
+			// cheaper to rebuild the table from what is left than to back-shift every removal
+			Arrays.fill(hashKeys, null);
+			for (int i = 0; i < newSize; ++i) {
+				insert(data[i], hash(data[i]));
+			}
+		} else {
+			for (int i = newSize; i < size; ++i) {
+				delete(seek(data[i], hash(data[i])));
+			}
+		}
+		Arrays.fill(data, newSize, size, null);
+		size = newSize;
+		return true;
+	}
+
+	@Override
+	public E remove(int index) {
+
+		checkElementIndex(index);
+
+		E oldValue = index(index);
+		delete(seek(oldValue, hash(oldValue)));
+		fastRemove(index);
+
+		return oldValue;
+	}
+
+	@Override
+	public boolean remove(Object obj) {
+
+		int slot = seek(obj, hash(obj));
+		if (slot < 0) {
+			return false;
+		}
+
+		Object o = unmaskNull(hashKeys[slot]);
+		Object[] data = elementData;
+		for (int i = size; i-- > 0;) {
+			if (data[i] == o) {
+				fastRemove(i);
+				break;
+			}
+		}
+		delete(slot);
+		return true;
+	}
+
+	private void fastRemove(int index) {
+
+		modCount++;
+		int numMoved = size - index - 1;
+		if (numMoved > 0) {
+			System.arraycopy(elementData, index + 1, elementData, index, numMoved);
+		}
+		elementData[--size] = null; // clear to let GC do its work
+	}
+
+	// { following methods (until the next }) copied mostly verbatim from ArrayList
+	@Override
+	public void clear() {
+
+		modCount++;
+
+		// clear to let GC do its work
+		for (int i = 0; i < size; i++) {
+			elementData[i] = null;
+		}
+
+		Arrays.fill(hashKeys, null);
+
+		size = 0;
+	}
+
+	/**
+	 * Trims the capacity of this <tt>OpenArrayHashList</tt> instance to be the list's current size. An application can use this operation to minimize the
+	 * storage of an <tt>OpenArrayHashList</tt> instance.
+	 */
+	public void trimToSize() {
+
+		++modCount;
+		if (size < elementData.length) {
+			elementData = Arrays.copyOf(elementData, size);
+		}
+	}
+
+	/**
+	 * Increases the capacity of this <tt>OpenArrayHashList</tt> instance, if necessary, to ensure that it can hold at least the number of elements specified by
+	 * the minimum capacity argument.
+	 *
+	 * @param minCapacity
+	 *            the desired minimum capacity
+	 */
+	public void ensureCapacity(int minCapacity) {
+
+		if (minCapacity > 0) {
+			ensureCapacityInternal(minCapacity);
+		}
+	}
+
+	private void ensureCapacityInternal(int minCapacity) {
+
+		++modCount;
+		// overflow-conscious code
+		if (minCapacity - elementData.length > 0) {
+			grow(minCapacity);
+		}
+	}
+
+	/**
+	 * The maximum size of array to allocate. Some VMs reserve some header words in an array. Attempts to allocate larger arrays may result in OutOfMemoryError:
+	 * Requested array size exceeds VM limit
+	 */
+	private static final int MAX_ARRAY_SIZE = Integer.MAX_VALUE - 8;
+
+	/**
+	 * Increases the capacity to ensure that it can hold at least the number of elements specified by the minimum capacity argument.
+	 *
+	 * @param minCapacity
+	 *            the desired minimum capacity
+	 */
+	private void grow(int minCapacity) {
+
+		// overflow-conscious code
+		int oldCapacity = elementData.length;
+		int newCapacity = oldCapacity + (oldCapacity >> 1);
+		if (newCapacity - minCapacity < 0) {
+			newCapacity = minCapacity;
+		}
+		if (newCapacity - MAX_ARRAY_SIZE > 0) {
+			newCapacity = hugeCapacity(minCapacity);
+		}
+		// minCapacity is usually close to size, so this is a win:
+		elementData = Arrays.copyOf(elementData, newCapacity);
+	}
+
+	private static int hugeCapacity(int minCapacity) {
+
+		if (minCapacity < 0) {
+			throw new OutOfMemoryError();
+		}
+		return (minCapacity > MAX_ARRAY_SIZE) ? Integer.MAX_VALUE : MAX_ARRAY_SIZE;
+	}
+
+	private void writeObject(java.io.ObjectOutputStream s) throws java.io.IOException {
+
+		// Write out element count, and any hidden stuff
+		int expectedModCount = modCount;
+		s.defaultWriteObject();
+
+		// Write out size as capacity for behavioural compatibility with clone()
+		s.writeInt(size);
+
+		// Write out all elements in the proper order.
+		for (int i = 0; i < size; i++) {
+			s.writeObject(elementData[i]);
+		}
+
+		if (modCount != expectedModCount) {
+			throw new ConcurrentModificationException();
+		}
+	}
+
+	private void readObject(java.io.ObjectInputStream s) throws java.io.IOException, ClassNotFoundException {
+
+		elementData = new Object[10];
+		hashKeys = new Object[16];
+		hashCodes = new int[16];
+		mask = 15;
+		size = 0;
+
+		// Read in size, and any hidden stuff
+		s.defaultReadObject();
+		if (strategy == null) {
+			// written before strategies existed
+			strategy = HashingStrategies.DEFAULT;
+		}
+
+		// Read in capacity
+		int size = s.readInt();
+
+		if (size > 0) {
+			// be like clone(), allocate array based upon size not capacity
+			ensureCapacityInternal(size);
+
+			// Read in all elements in the proper order.
+			for (int i = 0; i < size; i++) {
+				add((E) s.readObject());
+			}
+		}
+	}
+
+	// }
+
+	E index(int index) {
+
+		return (E) elementData[index];
+	}
+
+	private static Object maskNull(Object obj) {
+
+		return obj == null ? NULL_KEY : obj;
+	}
+
+	private static Object unmaskNull(Object obj) {
+
+		return obj == NULL_KEY ? null : obj;
+	}
+
+	/**
+	 * @return The table slot holding <code>obj</code>, or -1 if it is not present.
+	 */
+	protected int seek(Object obj, int hash) {
+
+		Object key = maskNull(obj);
+		Object[] keys = hashKeys;
+		int[] hashes = hashCodes;
+		int mask = this.mask;
+
+		for (int slot = hash & mask;; slot = (slot + 1) & mask) {
+			Object cur = keys[slot];
+			if (cur == null) {
+				return -1;
+			}
+			if (hash == hashes[slot] && (cur == key || strategy.equals((E) obj, (E) unmaskNull(cur)))) {
+				return slot;
+			}
+		}
+	}
+
+	protected void insert(Object obj, int hash) {
+
+		Object[] keys = hashKeys;
+		int mask = this.mask;
+
+		int slot = hash & mask;
+		while (keys[slot] != null) {
+			slot = (slot + 1) & mask;
+		}
+		keys[slot] = maskNull(obj);
+		hashCodes[slot] = hash;
+	}
+
+	/**
+	 * Clears <code>slot</code> and shifts back any following entries of the same probe run, so that no tombstones are needed.
+	 */
+	protected void delete(int slot) {
+
+		Object[] keys = hashKeys;
+		int[] hashes = hashCodes;
+		int mask = this.mask;
+
+		for (int cur = slot;;) {
+			cur = (cur + 1) & mask;
+			Object key = keys[cur];
+			if (key == null) {
+				break;
+			}
+			int ideal = hashes[cur] & mask;
+			// move the entry into the gap unless its ideal slot lies cyclically in (slot, cur]
+			if (((cur - ideal) & mask) >= ((cur - slot) & mask)) {
+				keys[slot] = key;
+				hashes[slot] = hashes[cur];
+				slot = cur;
+			}
+		}
+		keys[slot] = null;
+	}
+
+	protected void rehashIfNecessary() {
+
+		Object[] old = hashKeys;
+		if (size > old.length >> 1) {
+			if (old.length >= Ints.MAX_POWER_OF_TWO) {
+				if (size < old.length) {
+					return;
+				}
+				throw new IllegalStateException("List too large");
+			}
+			rehash(old.length * 2);
+		}
+	}
+
+	private void rehash(int newTableSize) {
+
+		Object[] old = hashKeys;
+		int[] oldHashes = hashCodes;
+		int newMask = newTableSize - 1;
+		Object[] newKeys = new Object[newTableSize];
+		int[] newHashes = new int[newTableSize];
+
+		for (int i = old.length; i-- > 0;) {
+			Object key = old[i];
+			if (key != null) {
+				int hash = oldHashes[i], slot = hash & newMask;
+				while (newKeys[slot] != null) {
+					slot = (slot + 1) & newMask;
+				}
+				newKeys[slot] = key;
+				newHashes[slot] = hash;
+			}
+		}
+		hashKeys = newKeys;
+		hashCodes = newHashes;
+		mask = newMask;
+		++rehashCount;
+	}
+
+	/* DIAGNOSTICS */
+	/**
+	 * @return The number of times the key table has grown since this list was created.
+	 */
+	public int getRehashCount() {
+
+		return rehashCount;
+	}
+
+	/**
+	 * @return The number of elements whose hash picks the most popular slot.
+	 */
+	public int getMaxChainLength() {
+
+		return getBucketHistogram().length - 1;
+	}
+
+	/**
+	 * @return An array whose element <code>n</code> is the number of table slots that exactly <code>n</code> elements hash to, before probing; its length
+	 *         is one more than the largest such count.
+	 */
+	public int[] getBucketHistogram() {
+
+		Object[] keys = hashKeys;
+		int[] hashes = hashCodes;
+		int[] counts = new int[keys.length];
+		for (int i = keys.length; i-- > 0;) {
+			if (keys[i] != null) {
+				++counts[hashes[i] & mask];
+			}
+		}
+		int[] histogram = new int[4];
+		int max = 0;
+		for (int n : counts) {
+			if (n >= histogram.length) {
+				histogram = Arrays.copyOf(histogram, Math.max(n + 1, histogram.length * 2));
+			}
+			++histogram[n];
+			max = Math.max(max, n);
+		}
+		return Arrays.copyOf(histogram, max + 1);
+	}
+
+	@Override
+	public OpenArrayHashList<E> clone() {
+
+		return new OpenArrayHashList<E>(this, strategy);
+	}
+
+	@Override
+	public List<E> subList(int fromIndex, int toIndex) {
+
+		throw new UnsupportedOperationException();
+	}
+
+	@Override
+	public Iterator<E> iterator() {
+
+		return new Itr();
+	}
+
+	@Override
+	public ListIterator<E> listIterator() {
+
+		return listIterator(0);
+	}
+
+	@Override
+	public ListIterator<E> listIterator(int index) {
+
+		return new ListItr(index);
+	}
+
+	protected boolean isElementIndex(int index) {
+
+		return index >= 0 && index < size;
+	}
+
+	protected boolean isPositionIndex(int index) {
+
+		return index >= 0 && index <= size;
+	}
+
+	protected String outOfBoundsMsg(int index) {
+
+		return "Index: " + index + ", Size: " + size;
+	}
+
+	protected void checkElementIndex(int index) {
+
+		if (!isElementIndex(index)) {
+			throw new IndexOutOfBoundsException(outOfBoundsMsg(index));
+		}
+	}
+
+	protected void checkPositionIndex(int index) {
+
+		if (!isPositionIndex(index)) {
+			throw new IndexOutOfBoundsException(outOfBoundsMsg(index));
+		}
+	}
+
+	private class Itr implements Iterator<E> {
+
+		int cursor; // index of next element to return
+		int lastRet = -1; // index of last element returned; -1 if no such
+		int expectedModCount = modCount;
+
+		@Override
+		public boolean hasNext() {
+
+			return cursor != size;
+		}
+
+		@Override
+		public E next() {
+
+			checkForComodification();
+			int i = cursor;
+			if (i >= size) {
+				throw new NoSuchElementException();
+			}
+			Object[] elementData = OpenArrayHashList.this.elementData;
+			if (i >= elementData.length) {
+				throw new ConcurrentModificationException();
+			}
+			cursor = i + 1;
+			return (E) elementData[lastRet = i];
+		}
+
+		@Override
+		public void remove() {
+
+			if (lastRet < 0) {
+				throw new IllegalStateException();
+			}
+			checkForComodification();
+
+			try {
+				OpenArrayHashList.this.remove(lastRet);
+				cursor = lastRet;
+				lastRet = -1;
+				expectedModCount = modCount;
+			} catch (IndexOutOfBoundsException ex) {
+				throw new ConcurrentModificationException();
+			}
+		}
+
+		final void checkForComodification() {
+
+			if (modCount != expectedModCount) {
+				throw new ConcurrentModificationException();
+			}
+		}
+	}
+
+	private class ListItr extends Itr implements ListIterator<E> {
+
+		ListItr(int index) {
+
+			super();
+			cursor = index;
+		}
+
+		@Override
+		public boolean hasPrevious() {
+
+			return cursor != 0;
+		}
+
+		@Override
+		public int nextIndex() {
+
+			return cursor;
+		}
+
+		@Override
+		public int previousIndex() {
+
+			return cursor - 1;
+		}
+
+		@Override
+		public E previous() {
+
+			checkForComodification();
+			int i = cursor - 1;
+			if (i < 0) {
+				throw new NoSuchElementException();
+			}
+			Object[] elementData = OpenArrayHashList.this.elementData;
+			if (i >= elementData.length) {
+				throw new ConcurrentModificationException();
+			}
+			cursor = i;
+			return (E) elementData[lastRet = i];
+		}
+
+		@Override
+		public void set(E e) {
+
+			if (lastRet < 0) {
+				throw new IllegalStateException();
+			}
+			checkForComodification();
+
+			try {
+				OpenArrayHashList.this.set(lastRet, e);
+			} catch (IndexOutOfBoundsException ex) {
+				throw new ConcurrentModificationException();
+			}
+		}
+
+		@Override
+		public void add(E e) {
+
+			checkForComodification();
+
+			try {
+				int i = cursor;
+				OpenArrayHashList.this.add(i, e);
+				cursor = i + 1;
+				lastRet = -1;
+				expectedModCount = modCount;
+			} catch (IndexOutOfBoundsException ex) {
+				throw new ConcurrentModificationException();
+			}
+		}
+	}
+
+}
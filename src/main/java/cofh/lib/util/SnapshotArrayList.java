@@ -0,0 +1,207 @@
+package cofh.lib.util;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.RandomAccess;
+
+/**
+ * A duplicate-free list whose contents are published as immutable array snapshots. Every mutation copies the backing array and swaps it in atomically,
+ * so readers on any thread never lock and never observe a partially applied change.
+ * <p>
+ * Intended for small, read-mostly lists such as the handlers on a single Ender frequency. Readers that need a stable view across several calls should
+ * take {@link #snapshot()} once and work from that array; it is never modified after publication and taking it allocates nothing.
+ */
+@SuppressWarnings("unchecked")
+public class SnapshotArrayList<E extends Object> extends AbstractList<E> implements RandomAccess {
+
+	private static final Object[] EMPTY = new Object[0];
+
+	private volatile Object[] elementData = EMPTY;
+
+	public SnapshotArrayList() {
+
+	}
+
+	/**
+	 * @return The current contents. The array must not be modified by the caller.
+	 */
+	public Object[] snapshot() {
+
+		return elementData;
+	}
+
+	@Override
+	public int size() {
+
+		return elementData.length;
+	}
+
+	@Override
+	public E get(int index) {
+
+		return (E) elementData[index];
+	}
+
+	@Override
+	public int indexOf(Object obj) {
+
+		return indexOf(elementData, obj);
+	}
+
+	@Override
+	public int lastIndexOf(Object obj) {
+
+		return indexOf(obj);
+	}
+
+	@Override
+	public boolean contains(Object obj) {
+
+		return indexOf(elementData, obj) >= 0;
+	}
+
+	@Override
+	public synchronized boolean add(E obj) {
+
+		Object[] data = elementData;
+		if (indexOf(data, obj) >= 0) {
+			return false;
+		}
+		data = Arrays.copyOf(data, data.length + 1);
+		data[data.length - 1] = obj;
+		elementData = data;
+		return true;
+	}
+
+	@Override
+	public synchronized void add(int index, E obj) {
+
+		Object[] data = elementData;
+		if (index < 0 || index > data.length) {
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + data.length);
+		}
+		if (indexOf(data, obj) >= 0) {
+			throw new IllegalArgumentException("Duplicate entries not allowed");
+		}
+		Object[] newData = new Object[data.length + 1];
+		System.arraycopy(data, 0, newData, 0, index);
+		System.arraycopy(data, index, newData, index + 1, data.length - index);
+		newData[index] = obj;
+		elementData = newData;
+	}
+
+	@Override
+	public synchronized E set(int index, E obj) {
+
+		Object[] data = elementData;
+		E old = (E) data[index];
+		int other = indexOf(data, obj);
+		if (other >= 0 && other != index) {
+			throw new IllegalArgumentException("Duplicate entries not allowed");
+		}
+		data = data.clone();
+		data[index] = obj;
+		elementData = data;
+		return old;
+	}
+
+	@Override
+	public synchronized E remove(int index) {
+
+		Object[] data = elementData;
+		E old = (E) data[index];
+		elementData = without(data, index);
+		return old;
+	}
+
+	@Override
+	public synchronized boolean remove(Object obj) {
+
+		Object[] data = elementData;
+		int index = indexOf(data, obj);
+		if (index < 0) {
+			return false;
+		}
+		elementData = without(data, index);
+		return true;
+	}
+
+	@Override
+	public synchronized void clear() {
+
+		elementData = EMPTY;
+	}
+
+	/**
+	 * Iterates over the snapshot current at the time of the call; later changes are not reflected and <code>remove</code> is not supported.
+	 */
+	@Override
+	public Iterator<E> iterator() {
+
+		return new Itr(elementData);
+	}
+
+	private static int indexOf(Object[] data, Object obj) {
+
+		if (obj == null) {
+			for (int i = 0; i < data.length; ++i) {
+				if (data[i] == null) {
+					return i;
+				}
+			}
+		} else {
+			for (int i = 0; i < data.length; ++i) {
+				if (obj.equals(data[i])) {
+					return i;
+				}
+			}
+		}
+		return -1;
+	}
+
+	private static Object[] without(Object[] data, int index) {
+
+		if (data.length == 1) {
+			return EMPTY;
+		}
+		Object[] newData = new Object[data.length - 1];
+		System.arraycopy(data, 0, newData, 0, index);
+		System.arraycopy(data, index + 1, newData, index, data.length - index - 1);
+		return newData;
+	}
+
+	private class Itr implements Iterator<E> {
+
+		final Object[] data;
+		int cursor;
+
+		Itr(Object[] data) {
+
+			this.data = data;
+		}
+
+		@Override
+		public boolean hasNext() {
+
+			return cursor < data.length;
+		}
+
+		@Override
+		public E next() {
+
+			if (cursor >= data.length) {
+				throw new NoSuchElementException();
+			}
+			return (E) data[cursor++];
+		}
+
+		@Override
+		public void remove() {
+
+			throw new UnsupportedOperationException();
+		}
+	}
+
+}
@@ -89,9 +89,10 @@ public final class ChunkCoord implements Comparable<ChunkCoord>, Serializable {
 	@Override
 	public int hashCode() {
 
-		int hash = chunkX;
-		hash *= 31 + this.chunkZ;
-		return hash;
+		// same as ChunkCoordIntPair; chunkX * (31 + chunkZ) was 0 for every chunk with x = 0
+		int i = 1664525 * chunkX + 1013904223;
+		int j = 1664525 * (chunkZ ^ -559038737) + 1013904223;
+		return i ^ j;
 	}
 
 	@Override
@@ -0,0 +1,245 @@
+package cofh.lib.world;
+
+import static cofh.lib.util.LongLinkedHashSet.*;
+
+import gnu.trove.list.array.TLongArrayList;
+import gnu.trove.map.hash.TLongObjectHashMap;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import net.minecraft.block.Block;
+import net.minecraft.init.Blocks;
+import net.minecraft.network.play.server.S21PacketChunkData;
+import net.minecraft.server.management.PlayerManager;
+import net.minecraft.server.management.PlayerManager.PlayerInstance;
+import net.minecraft.world.World;
+import net.minecraft.world.WorldServer;
+import net.minecraft.world.chunk.Chunk;
+import net.minecraft.world.chunk.NibbleArray;
+import net.minecraft.world.chunk.storage.ExtendedBlockStorage;
+
+/**
+ * Writes generated blocks straight into each chunk's {@link ExtendedBlockStorage}, skipping the lighting update and block notification
+ * <code>World.setBlock</code> makes for every block. Each touched chunk gets its sky light regenerated, and one {@link S21PacketChunkData} sent to anyone
+ * watching it, when the outermost {@link #begin(World)} is {@link #end() ended}.
+ * <p>
+ * While a writer is active on a thread, {@link WorldGenMinableCluster#generateBlock(World, java.util.Random, int, int, int, java.util.List)} and so
+ * every generator built on it writes through it. Reads through the world see the written blocks at once; only the light and, for blocks that remove
+ * opacity, the height map lag until the end.
+ * <p>
+ * <code>onBlockAdded</code> and <code>breakBlock</code> are not called. Blocks with tile entities, and blocks replacing one, still go through the world.
+ */
+public final class BulkBlockWriter {
+
+	private static final ThreadLocal<BulkBlockWriter> WRITER = new ThreadLocal<BulkBlockWriter>() {
+
+		@Override
+		protected BulkBlockWriter initialValue() {
+
+			return new BulkBlockWriter();
+		}
+	};
+
+	/**
+	 * Starts a batch of writes to <code>world</code> on this thread, or joins the one already started. Every call must be paired with {@link #end()},
+	 * in a finally block.
+	 */
+	public static BulkBlockWriter begin(World world) {
+
+		return begin(world, true);
+	}
+
+	/**
+	 * @param relight
+	 *            False to clear the sky light of touched chunks and let them relight over the following ticks instead of regenerating it at once. A
+	 *            joined batch relights if either caller asked for it.
+	 */
+	public static BulkBlockWriter begin(World world, boolean relight) {
+
+		BulkBlockWriter r = WRITER.get();
+		if (r.world == null) {
+			r.world = world;
+			r.relight = relight;
+		} else if (r.world != world) {
+			throw new IllegalStateException("Already writing to another world");
+		} else {
+			r.relight |= relight;
+		}
+		++r.depth;
+		return r;
+	}
+
+	/**
+	 * @return The batch started on this thread for <code>world</code>, or null.
+	 */
+	public static BulkBlockWriter get(World world) {
+
+		BulkBlockWriter r = WRITER.get();
+		return r.world == world ? r : null;
+	}
+
+	private World world;
+	private int depth;
+	private boolean relight;
+
+	private final TLongObjectHashMap<Chunk> chunkMap = new TLongObjectHashMap<Chunk>();
+	private final ArrayList<Chunk> chunks = new ArrayList<Chunk>();
+	private final TLongArrayList lights = new TLongArrayList();
+	private Chunk lastChunk;
+
+	private BulkBlockWriter() {
+
+	}
+
+	/**
+	 * Ends one {@link #begin(World)}; the outermost flushes the batch.
+	 */
+	public void end() {
+
+		if (depth <= 0) {
+			throw new IllegalStateException("Not writing");
+		}
+		if (--depth == 0) {
+			try {
+				flush();
+			} finally {
+				world = null;
+			}
+		}
+	}
+
+	public World getWorld() {
+
+		return world;
+	}
+
+	/**
+	 * @return The number of chunks written to since the last flush.
+	 */
+	public int getChunkCount() {
+
+		return chunks.size();
+	}
+
+	/**
+	 * @return True if the block changed, as for <code>World.setBlock</code>.
+	 */
+	public boolean setBlock(int x, int y, int z, Block block, int metadata) {
+
+		if ((y < 0) | y > 255) {
+			return false;
+		}
+		Chunk chunk = getChunk(x >> 4, z >> 4);
+		ExtendedBlockStorage section = chunk.getBlockStorageArray()[y >> 4];
+		if (section == null) {
+			if (block == Blocks.air) {
+				return false;
+			}
+			section = chunk.getBlockStorageArray()[y >> 4] = new ExtendedBlockStorage(y & ~15, !world.provider.hasNoSky);
+		}
+		int cx = x & 15, cy = y & 15, cz = z & 15;
+		Block old = section.getBlockByExtId(cx, cy, cz);
+		int oldMeta = section.getExtBlockMetadata(cx, cy, cz);
+		if (old == block && oldMeta == metadata) {
+			return false;
+		}
+		if (block.hasTileEntity(metadata) || old.hasTileEntity(oldMeta)) {
+			return world.setBlock(x, y, z, block, metadata, 2);
+		}
+		section.func_150818_a(cx, cy, cz, block);
+		section.setExtBlockMetadata(cx, cy, cz, metadata);
+		section.setExtBlocklightValue(cx, cy, cz, 0);
+
+		int column = cz << 4 | cx;
+		if (block.getLightOpacity() > 0 && y >= chunk.heightMap[column]) {
+			chunk.heightMap[column] = y + 1;
+		}
+		if (block.getLightValue() > 0 || old.getLightValue() > 0) {
+			lights.add(pack(x, y, z));
+		}
+		return true;
+	}
+
+	/**
+	 * Changes only the metadata of the block at the given position.
+	 */
+	public boolean setBlockMetadata(int x, int y, int z, int metadata) {
+
+		if ((y < 0) | y > 255) {
+			return false;
+		}
+		Chunk chunk = getChunk(x >> 4, z >> 4);
+		ExtendedBlockStorage section = chunk.getBlockStorageArray()[y >> 4];
+		if (section == null || section.getExtBlockMetadata(x & 15, y & 15, z & 15) == metadata) {
+			return false;
+		}
+		Block block = section.getBlockByExtId(x & 15, y & 15, z & 15);
+		if (block.hasTileEntity(section.getExtBlockMetadata(x & 15, y & 15, z & 15)) || block.hasTileEntity(metadata)) {
+			return world.setBlockMetadataWithNotify(x, y, z, metadata, 2);
+		}
+		section.setExtBlockMetadata(x & 15, y & 15, z & 15, metadata);
+		return true;
+	}
+
+	/**
+	 * Relights and sends every chunk written to so far. The batch stays open.
+	 */
+	public void flush() {
+
+		for (int i = 0, e = chunks.size(); i < e; ++i) {
+			Chunk chunk = chunks.get(i);
+			chunk.generateSkylightMap();
+			if (!relight) {
+				ExtendedBlockStorage[] storage = chunk.getBlockStorageArray();
+				for (int j = storage.length; j-- > 0;) {
+					if (storage[j] != null) {
+						// { force data array to exist if optimizations to not exist are in place
+						NibbleArray a = storage[j].getSkylightArray();
+						a.set(0, 0, 0, 0);
+						a.set(0, 0, 0, 15);
+						// }
+						Arrays.fill(a.data, (byte) 0);
+					}
+				}
+				chunk.resetRelightChecks();
+			}
+			chunk.isModified = true;
+		}
+		for (int i = 0, e = lights.size(); i < e; ++i) {
+			long pos = lights.get(i);
+			world.func_147451_t(unpackX(pos), unpackY(pos), unpackZ(pos));
+		}
+		if (world instanceof WorldServer) {
+			PlayerManager manager = ((WorldServer) world).getPlayerManager();
+			for (int i = 0, e = manager == null ? 0 : chunks.size(); i < e; ++i) {
+				Chunk chunk = chunks.get(i);
+				PlayerInstance watcher = manager.getOrCreateChunkWatcher(chunk.xPosition, chunk.zPosition, false);
+				if (watcher != null) {
+					watcher.sendToAllPlayersWatchingChunk(new S21PacketChunkData(chunk, false, -1));
+				}
+			}
+		}
+		chunkMap.clear();
+		chunks.clear();
+		lights.resetQuick();
+		lastChunk = null;
+	}
+
+	private Chunk getChunk(int chunkX, int chunkZ) {
+
+		Chunk chunk = lastChunk;
+		if (chunk != null && chunk.xPosition == chunkX && chunk.zPosition == chunkZ) {
+			return chunk;
+		}
+		long key = (long) chunkX << 32 | chunkZ & 0xFFFFFFFFL;
+		chunk = chunkMap.get(key);
+		if (chunk == null) {
+			chunk = world.getChunkFromChunkCoords(chunkX, chunkZ);
+			chunkMap.put(key, chunk);
+			chunks.add(chunk);
+		}
+		return lastChunk = chunk;
+	}
+
+}
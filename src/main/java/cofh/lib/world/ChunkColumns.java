@@ -0,0 +1,125 @@
+package cofh.lib.world;
+
+import cofh.lib.util.helpers.BlockHelper;
+
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+
+import net.minecraft.world.World;
+import net.minecraft.world.chunk.Chunk;
+
+/**
+ * Caches {@link BlockHelper#getSurfaceBlockY(World, int, int)} and {@link BlockHelper#getTopBlockY(World, int, int)} for the columns of one chunk, so
+ * features probing the same columns while a chunk populates scan each column once.
+ * <p>
+ * Each cached height remembers the chunk's height map value and top filled segment for its column and is scanned again if either has moved, which catches
+ * most blocks placed or removed above it. Changes that move neither, such as placing a flower or replacing a block under water or leaves, are not seen by
+ * the stamp alone, so {@link cofh.lib.world.feature.FeatureBase} drops the whole cache after any feature that generated something, and
+ * {@link WorldGenMinableCluster#generateBlock(World, java.util.Random, int, int, int, java.util.List)} and {@link WorldGenDecoration} drop the column of
+ * every block they place, since a feature runs them several times in one chunk. Other code that writes blocks while a feature generates should
+ * {@link #invalidate(int, int)} the columns it changes.
+ */
+public final class ChunkColumns {
+
+	private static final ThreadLocal<ChunkColumns> CACHE = new ThreadLocal<ChunkColumns>() {
+
+		@Override
+		protected ChunkColumns initialValue() {
+
+			return new ChunkColumns();
+		}
+	};
+
+	public static int getSurfaceBlockY(World world, int x, int z) {
+
+		return get(world, x >> 4, z >> 4).getSurfaceY(x, z);
+	}
+
+	public static int getTopBlockY(World world, int x, int z) {
+
+		return get(world, x >> 4, z >> 4).getTopY(x, z);
+	}
+
+	/**
+	 * Drops every cached height on this thread.
+	 */
+	public static void invalidate() {
+
+		CACHE.get().world = null;
+	}
+
+	/**
+	 * Drops the cached heights of one column on this thread.
+	 */
+	public static void invalidate(int x, int z) {
+
+		ChunkColumns r = CACHE.get();
+		if (r.world != null && r.chunkX == x >> 4 && r.chunkZ == z >> 4) {
+			int i = (z & 15) << 4 | x & 15;
+			r.surfaceStamp[i] = 0;
+			r.topStamp[i] = 0;
+		}
+	}
+
+	private static ChunkColumns get(World world, int chunkX, int chunkZ) {
+
+		ChunkColumns r = CACHE.get();
+		if (r.world == null || r.world.get() != world || r.chunkX != chunkX || r.chunkZ != chunkZ) {
+			r.load(world, chunkX, chunkZ);
+		}
+		return r;
+	}
+
+	private WeakReference<World> world;
+	private int chunkX, chunkZ;
+
+	/* stamp: top filled segment << 9 | height map value, plus 1; 0 if not cached */
+	private final int[] surface = new int[256];
+	private final int[] surfaceStamp = new int[256];
+	private final int[] top = new int[256];
+	private final int[] topStamp = new int[256];
+
+	private ChunkColumns() {
+
+	}
+
+	private void load(World world, int chunkX, int chunkZ) {
+
+		this.world = new WeakReference<World>(world);
+		this.chunkX = chunkX;
+		this.chunkZ = chunkZ;
+		Arrays.fill(surfaceStamp, 0);
+		Arrays.fill(topStamp, 0);
+	}
+
+	private int getSurfaceY(int x, int z) {
+
+		World world = this.world.get();
+		int i = (z & 15) << 4 | x & 15;
+		int stamp = stamp(world, x, z);
+		if (surfaceStamp[i] != stamp) {
+			surface[i] = BlockHelper.getSurfaceBlockY(world, x, z);
+			surfaceStamp[i] = stamp;
+		}
+		return surface[i];
+	}
+
+	private int getTopY(int x, int z) {
+
+		World world = this.world.get();
+		int i = (z & 15) << 4 | x & 15;
+		int stamp = stamp(world, x, z);
+		if (topStamp[i] != stamp) {
+			top[i] = BlockHelper.getTopBlockY(world, x, z);
+			topStamp[i] = stamp;
+		}
+		return top[i];
+	}
+
+	private int stamp(World world, int x, int z) {
+
+		Chunk chunk = world.getChunkFromChunkCoords(chunkX, chunkZ);
+		return (chunk.getTopFilledSegment() << 9 | chunk.getHeightValue(x & 15, z & 15)) + 1;
+	}
+
+}
@@ -0,0 +1,18 @@
+package cofh.lib.world;
+
+import java.util.Random;
+
+/**
+ * Implemented by generators whose output depends only on their position and <code>Random</code>, so it can be planned off the server thread by a
+ * {@link WorldGenPlanner} and committed later.
+ */
+public interface IPlannableGenerator {
+
+	/**
+	 * Records the generator's writes at the given position into <code>plan</code>. Must not touch any world, or any state shared with other threads.
+	 *
+	 * @return False if nothing was planned.
+	 */
+	public boolean plan(WorldGenPlan plan, Random rand, int x, int y, int z);
+
+}
@@ -52,7 +52,10 @@ public class WorldGenDecoration extends WorldGenerator {
 				int stack = stackHeight > 1 ? rand.nextInt(stackHeight) : 0;
 				do {
 					if (!checkStay || block.block.canBlockStay(world, x, y, z)) {
-						r |= world.setBlock(x, y, z, block.block, block.metadata, 2);
+						if (world.setBlock(x, y, z, block.block, block.metadata, 2)) {
+							ChunkColumns.invalidate(x, z);
+							r = true;
+						}
 					} else {
 						break;
 					}
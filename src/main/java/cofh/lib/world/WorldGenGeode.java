@@ -10,7 +10,7 @@ import java.util.Random;
 import net.minecraft.world.World;
 import net.minecraft.world.gen.feature.WorldGenerator;
 
-public class WorldGenGeode extends WorldGenerator {
+public class WorldGenGeode extends WorldGenerator implements IPlannableGenerator {
 
 	private final List<WeightedRandomBlock> cluster;
 	private final List<WeightedRandomBlock> outline;
@@ -44,34 +44,7 @@ public class WorldGenGeode extends WorldGenerator {
 		boolean[] hollowBlock = new boolean[width * width * height];
 
 		int W = width - 1, H = height - 1;
-
-		for (int i = 0, e = rand.nextInt(4) + 4; i < e; ++i) {
-			double xSize = rand.nextDouble() * 6.0D + 3.0D;
-			double ySize = rand.nextDouble() * 4.0D + 2.0D;
-			double zSize = rand.nextDouble() * 6.0D + 3.0D;
-			double xCenter = rand.nextDouble() * (width - xSize - 2.0D) + 1.0D + xSize / 2.0D;
-			double yCenter = rand.nextDouble() * (height - ySize - 4.0D) + 2.0D + ySize / 2.0D;
-			double zCenter = rand.nextDouble() * (width - zSize - 2.0D) + 1.0D + zSize / 2.0D;
-			double minDist = hollow ? rand.nextGaussian() * 0.15 + 0.4 : 0;
-
-			for (int x = 1; x < W; ++x) {
-				for (int z = 1; z < W; ++z) {
-					for (int y = 1; y < H; ++y) {
-						double xDist = (x - xCenter) / (xSize / 2.0D);
-						double yDist = (y - yCenter) / (ySize / 2.0D);
-						double zDist = (z - zCenter) / (zSize / 2.0D);
-						double dist = xDist * xDist + yDist * yDist + zDist * zDist;
-
-						if (dist < 1.0D) {
-							spawnBlock[(x * width + z) * height + y] = hollow ? dist > minDist : true;
-						}
-						if (hollow) {
-							hollowBlock[(x * width + z) * height + y] = dist <= minDist;
-						}
-					}
-				}
-			}
-		}
+		generateShape(rand, spawnBlock, hollowBlock);
 
 		int x;
 		int y;
@@ -130,4 +103,114 @@ public class WorldGenGeode extends WorldGenerator {
 
 		return r;
 	}
+
+	@Override
+	public boolean plan(WorldGenPlan plan, Random rand, int xStart, int yStart, int zStart) {
+
+		int heightOff = height / 2;
+		int widthOff = width / 2;
+		xStart -= widthOff;
+		zStart -= widthOff;
+
+		if (yStart <= heightOff) {
+			return false;
+		}
+
+		yStart -= heightOff;
+		boolean[] spawnBlock = new boolean[width * width * height];
+		boolean[] hollowBlock = new boolean[width * width * height];
+
+		int W = width - 1, H = height - 1;
+		generateShape(rand, spawnBlock, hollowBlock);
+
+		int x;
+		int y;
+		int z;
+
+		for (x = 0; x < width; ++x) {
+			for (z = 0; z < width; ++z) {
+				for (y = 0; y < height; ++y) {
+					boolean flag = (fillBlock != null && hollowBlock[(x * width + z) * height + y])
+							|| spawnBlock[(x * width + z) * height + y]
+							|| ((x < W && spawnBlock[((x + 1) * width + z) * height + y]) || (x > 0 && spawnBlock[((x - 1) * width + z) * height + y])
+									|| (z < W && spawnBlock[(x * width + (z + 1)) * height + y]) || (z > 0 && spawnBlock[(x * width + (z - 1)) * height + y])
+									|| (y < H && spawnBlock[(x * width + z) * height + (y + 1)]) || (y > 0 && spawnBlock[(x * width + z) * height + (y - 1)]));
+
+					if (flag) {
+						plan.require(xStart + x, yStart + y, zStart + z, genBlock);
+					}
+				}
+			}
+		}
+
+		// unlike generate, a cluster block that fails to place still counts as placed when choosing the outline
+		boolean r = false;
+		for (x = 0; x < width; ++x) {
+			for (z = 0; z < width; ++z) {
+				for (y = 0; y < height; ++y) {
+					if (spawnBlock[(x * width + z) * height + y]) {
+						plan.add(xStart + x, yStart + y, zStart + z, cluster, null);
+						r = true;
+					}
+				}
+			}
+		}
+
+		for (x = 0; x < width; ++x) {
+			for (z = 0; z < width; ++z) {
+				for (y = 0; y < height; ++y) {
+					if (fillBlock != null && hollowBlock[(x * width + z) * height + y]) {
+						plan.add(xStart + x, yStart + y, zStart + z, fillBlock, null);
+						r = true;
+					} else {
+						boolean flag = !spawnBlock[(x * width + z) * height + y]
+								&& ((x < W && spawnBlock[((x + 1) * width + z) * height + y]) || (x > 0 && spawnBlock[((x - 1) * width + z) * height + y])
+										|| (z < W && spawnBlock[(x * width + (z + 1)) * height + y])
+										|| (z > 0 && spawnBlock[(x * width + (z - 1)) * height + y])
+										|| (y < H && spawnBlock[(x * width + z) * height + (y + 1)]) || (y > 0 && spawnBlock[(x * width + z) * height + (y - 1)]));
+
+						if (flag) {
+							plan.add(xStart + x, yStart + y, zStart + z, outline, null);
+							r = true;
+						}
+					}
+				}
+			}
+		}
+
+		return r;
+	}
+
+	private void generateShape(Random rand, boolean[] spawnBlock, boolean[] hollowBlock) {
+
+		int W = width - 1, H = height - 1;
+
+		for (int i = 0, e = rand.nextInt(4) + 4; i < e; ++i) {
+			double xSize = rand.nextDouble() * 6.0D + 3.0D;
+			double ySize = rand.nextDouble() * 4.0D + 2.0D;
+			double zSize = rand.nextDouble() * 6.0D + 3.0D;
+			double xCenter = rand.nextDouble() * (width - xSize - 2.0D) + 1.0D + xSize / 2.0D;
+			double yCenter = rand.nextDouble() * (height - ySize - 4.0D) + 2.0D + ySize / 2.0D;
+			double zCenter = rand.nextDouble() * (width - zSize - 2.0D) + 1.0D + zSize / 2.0D;
+			double minDist = hollow ? rand.nextGaussian() * 0.15 + 0.4 : 0;
+
+			for (int x = 1; x < W; ++x) {
+				for (int z = 1; z < W; ++z) {
+					for (int y = 1; y < H; ++y) {
+						double xDist = (x - xCenter) / (xSize / 2.0D);
+						double yDist = (y - yCenter) / (ySize / 2.0D);
+						double zDist = (z - zCenter) / (zSize / 2.0D);
+						double dist = xDist * xDist + yDist * yDist + zDist * zDist;
+
+						if (dist < 1.0D) {
+							spawnBlock[(x * width + z) * height + y] = hollow ? dist > minDist : true;
+						}
+						if (hollow) {
+							hollowBlock[(x * width + z) * height + y] = dist <= minDist;
+						}
+					}
+				}
+			}
+		}
+	}
 }
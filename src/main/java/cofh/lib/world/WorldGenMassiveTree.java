@@ -4,24 +4,13 @@ import static cofh.lib.world.WorldGenMinableCluster.*;
 
 import cofh.lib.util.WeightedRandomBlock;
 
-import gnu.trove.iterator.TLongObjectIterator;
-import gnu.trove.map.hash.TLongObjectHashMap;
-
-import java.util.Arrays;
 import java.util.List;
 import java.util.Random;
 
 import net.minecraft.block.Block;
 import net.minecraft.block.BlockSapling;
-import net.minecraft.network.play.server.S21PacketChunkData;
-import net.minecraft.server.management.PlayerManager;
-import net.minecraft.server.management.PlayerManager.PlayerInstance;
 import net.minecraft.util.MathHelper;
 import net.minecraft.world.World;
-import net.minecraft.world.WorldServer;
-import net.minecraft.world.chunk.Chunk;
-import net.minecraft.world.chunk.NibbleArray;
-import net.minecraft.world.chunk.storage.ExtendedBlockStorage;
 import net.minecraft.world.gen.feature.WorldGenerator;
 
 public class WorldGenMassiveTree extends WorldGenerator {
@@ -81,7 +70,6 @@ public class WorldGenMassiveTree extends WorldGenerator {
 
 		leafBases = MathHelper.ceiling_float_int(heightLimit * heightAttenuation);
 		density = Math.max(1, (int) (1.382D + Math.pow(branchDensity * heightLimit / 13.0D, 2.0D)));
-		chunkMap = new TLongObjectHashMap<Chunk>((int) (scaleWidth * heightLimit));
 	}
 
 	private float layerSize(int par1) {
@@ -549,50 +537,26 @@ public class WorldGenMassiveTree extends WorldGenerator {
 			// time = System.nanoTime() - time;
 			// logger.info("Verified spawn position of massive tree in: " + time + "ns");
 			// long time2 = time = System.nanoTime();
-			this.generateLeafNodeList();
-			// long nodes = System.nanoTime();
-			this.generateLeaves();
-			// long leaves = System.nanoTime();
-			this.generateLeafNodeBases();
-			// long bases = System.nanoTime();
-			this.generateTrunk();
-			// long trunk = System.nanoTime();
-			// time = System.nanoTime() - time;
-			// logger.info("Generated massive tree in: " + time + "ns");
-			// trunk -= bases; bases -= leaves; leaves -= nodes; nodes -= time2;
-			// logger.info(String.format("%s for trunk, %s for leaf nodes, %s for leaves, %s for branches", trunk, nodes, leaves, bases));
-			// logger.info("\tTree contains " + blocksAdded + " Blocks");
-			// time = System.nanoTime();
-			if (fastPlacement) {
-				for (TLongObjectIterator<Chunk> iter = chunkMap.iterator(); iter.hasNext();) {
-					iter.advance();
-					Chunk chunk = iter.value();
-					chunk.generateSkylightMap();
-					ExtendedBlockStorage[] storage = chunk.getBlockStorageArray();
-					if (!relightBlocks) {
-						for (int i = storage.length; i-- > 0;) {
-							if (storage[i] != null) {
-								// { force data array to exist if optimizations to not exist are in place
-								NibbleArray a = storage[i].getSkylightArray();
-								a.set(0, 0, 0, 0);
-								a.set(0, 0, 0, 15);
-								// }
-								Arrays.fill(a.data, (byte) 0);
-							}
-						}
-						chunk.resetRelightChecks();
-					}
-					chunk.isModified = true;
-					if (world instanceof WorldServer) {
-						PlayerManager manager = ((WorldServer) world).getPlayerManager();
-						if (manager == null) {
-							continue;
-						}
-						PlayerInstance watcher = manager.getOrCreateChunkWatcher(chunk.xPosition, chunk.zPosition, false);
-						if (watcher != null) {
-							watcher.sendToAllPlayersWatchingChunk(new S21PacketChunkData(chunk, false, -1));
-						}
-					}
+			writer = fastPlacement ? BulkBlockWriter.begin(world, relightBlocks) : null;
+			try {
+				this.generateLeafNodeList();
+				// long nodes = System.nanoTime();
+				this.generateLeaves();
+				// long leaves = System.nanoTime();
+				this.generateLeafNodeBases();
+				// long bases = System.nanoTime();
+				this.generateTrunk();
+				// long trunk = System.nanoTime();
+				// time = System.nanoTime() - time;
+				// logger.info("Generated massive tree in: " + time + "ns");
+				// trunk -= bases; bases -= leaves; leaves -= nodes; nodes -= time2;
+				// logger.info(String.format("%s for trunk, %s for leaf nodes, %s for leaves, %s for branches", trunk, nodes, leaves, bases));
+				// logger.info("\tTree contains " + blocksAdded + " Blocks");
+				// time = System.nanoTime();
+			} finally {
+				if (writer != null) {
+					writer.end();
+					writer = null;
 				}
 			}
 			// time = System.nanoTime() - time;
@@ -604,7 +568,7 @@ public class WorldGenMassiveTree extends WorldGenerator {
 
 	// private static final org.apache.logging.log4j.Logger logger = org.apache.logging.log4j.LogManager.getLogger("Tree logger");
 	// private int blocksAdded = 0;
-	private TLongObjectHashMap<Chunk> chunkMap;
+	private BulkBlockWriter writer;
 
 	@Override
 	public void setBlockAndNotifyAdequately(World world, int x, int y, int z, Block block, int meta) {
@@ -613,7 +577,7 @@ public class WorldGenMassiveTree extends WorldGenerator {
 			return;
 		}
 		generated = true;
-		if (!fastPlacement) {
+		if (writer == null) {
 			if (block != null) {
 				super.setBlockAndNotifyAdequately(world, x, y, z, block, meta);
 			} else {
@@ -622,34 +586,11 @@ public class WorldGenMassiveTree extends WorldGenerator {
 			return;
 		}
 		// ++blocksAdded;
-		long pos = ((x & 0xFFFFFFF0L) << 32) | (z  & 0xFFFFFFF0L);
-
-		Chunk chunk = chunkMap.get(pos);
-		if (chunk == null) {
-			chunk = world.getChunkFromBlockCoords(x, z);
-			chunkMap.put(pos, chunk);
-		}
-
-		ExtendedBlockStorage[] storage = chunk.getBlockStorageArray();
-		ExtendedBlockStorage subChunk = storage[y >> 4];
-		if (subChunk == null) {
-			storage[y >> 4] = subChunk = new ExtendedBlockStorage(y & ~15, !world.provider.hasNoSky);
-		}
-
-		x &= 15;
-		z &= 15;
-		if (block != null && subChunk.getBlockByExtId(x, y & 15, z).hasTileEntity(subChunk.getExtBlockMetadata(x, y & 15, z))) {
-			chunk.removeTileEntity(x, y, z);
-		}
-		y &= 15;
-
 		if (block != null) {
-			subChunk.func_150818_a(x, y, z, block);
-			subChunk.setExtBlockMetadata(x, y, z, meta);
+			writer.setBlock(x, y, z, block, meta);
 		} else {
-			subChunk.setExtBlockMetadata(x, y, z, subChunk.getExtBlockMetadata(x, y, z) | meta);
+			writer.setBlockMetadata(x, y, z, world.getBlockMetadata(x, y, z) | meta);
 		}
-		subChunk.setExtBlocklightValue(x, y, z, 0);
 	}
 
 }
@@ -14,7 +14,7 @@ import net.minecraft.util.WeightedRandom;
 import net.minecraft.world.World;
 import net.minecraft.world.gen.feature.WorldGenerator;
 
-public class WorldGenMinableCluster extends WorldGenerator {
+public class WorldGenMinableCluster extends WorldGenerator implements IPlannableGenerator {
 
 	public static final List<WeightedRandomBlock> fabricateList(WeightedRandomBlock resource) {
 
@@ -74,9 +74,15 @@ public class WorldGenMinableCluster extends WorldGenerator {
 	@Override
 	public boolean generate(World world, Random rand, int x, int y, int z) {
 
+		return WorldGenPlan.generate(this, world, rand, x, y, z);
+	}
+
+	@Override
+	public boolean plan(WorldGenPlan plan, Random rand, int x, int y, int z) {
+
 		int blocks = genClusterSize;
 		if (blocks < 4) { // HACK: at 1 and 2 no ores are ever generated. at 3 only 1/3 veins generate
-			return generateTiny(world, rand, x, y, z);
+			return planTiny(plan, rand, x, y, z);
 		}
 		float f = rand.nextFloat() * (float) Math.PI;
 		// despite naming, these are not exactly min/max. more like direction
@@ -135,7 +141,8 @@ public class WorldGenMinableCluster extends WorldGenerator {
 							continue;
 						}
 
-						r |= generateBlock(world, blockX, blockY, blockZ, genBlock, cluster);
+						plan.add(blockX, blockY, blockZ, cluster, genBlock);
+						r = true;
 					}
 				}
 			}
@@ -158,6 +165,21 @@ public class WorldGenMinableCluster extends WorldGenerator {
 		return r;
 	}
 
+	private boolean planTiny(WorldGenPlan plan, Random random, int x, int y, int z) {
+
+		boolean r = false;
+		// not <=; generating up to clusterSize blocks
+		for (int i = 0; i < genClusterSize; i++) {
+			int d0 = x + random.nextInt(2);
+			int d1 = y + random.nextInt(2);
+			int d2 = z + random.nextInt(2);
+
+			plan.add(d0, d1, d2, cluster, genBlock);
+			r = true;
+		}
+		return r;
+	}
+
 	public static boolean canGenerateInBlock(World world, int x, int y, int z, WeightedRandomBlock[] mat) {
 
 		if (mat == null || mat.length == 0) {
@@ -189,21 +211,45 @@ public class WorldGenMinableCluster extends WorldGenerator {
 
 	public static boolean generateBlock(World world, int x, int y, int z, List<WeightedRandomBlock> o) {
 
-		WeightedRandomBlock ore = selectBlock(world, o);
+		return generateBlock(world, world.rand, x, y, z, o);
+	}
+
+	/**
+	 * Places a block chosen from <code>o</code> with <code>rand</code>, through the {@link BulkBlockWriter} active for <code>world</code> if there is one,
+	 * and drops the {@link ChunkColumns} cache of its column.
+	 */
+	public static boolean generateBlock(World world, Random rand, int x, int y, int z, List<WeightedRandomBlock> o) {
+
+		WeightedRandomBlock ore = selectBlock(rand, o);
 		if (ore == null) {
 			return false;
 		}
-		return world.setBlock(x, y, z, ore.block, ore.metadata, 2);
+		BulkBlockWriter writer = BulkBlockWriter.get(world);
+		boolean r;
+		if (writer != null) {
+			r = writer.setBlock(x, y, z, ore.block, ore.metadata);
+		} else {
+			r = world.setBlock(x, y, z, ore.block, ore.metadata, 2);
+		}
+		if (r) {
+			ChunkColumns.invalidate(x, z);
+		}
+		return r;
 	}
 
 	public static WeightedRandomBlock selectBlock(World world, List<WeightedRandomBlock> o) {
 
+		return selectBlock(world.rand, o);
+	}
+
+	public static WeightedRandomBlock selectBlock(Random rand, List<WeightedRandomBlock> o) {
+
 		int size = o.size();
 		if (size == 0) {
 			return null;
 		}
 		if (size > 1) {
-			return (WeightedRandomBlock) WeightedRandom.getRandomItem(world.rand, o);
+			return (WeightedRandomBlock) WeightedRandom.getRandomItem(rand, o);
 		}
 		return o.get(0);
 	}
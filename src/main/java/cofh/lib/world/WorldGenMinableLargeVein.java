@@ -13,7 +13,7 @@ import net.minecraft.item.ItemStack;
 import net.minecraft.world.World;
 import net.minecraft.world.gen.feature.WorldGenerator;
 
-public class WorldGenMinableLargeVein extends WorldGenerator {
+public class WorldGenMinableLargeVein extends WorldGenerator implements IPlannableGenerator {
 
 	private final List<WeightedRandomBlock> cluster;
 	private final WeightedRandomBlock[] genBlock;
@@ -66,6 +66,12 @@ public class WorldGenMinableLargeVein extends WorldGenerator {
 	@Override
 	public boolean generate(World world, Random rand, int x, int y, int z) {
 
+		return WorldGenPlan.generate(this, world, rand, x, y, z);
+	}
+
+	@Override
+	public boolean plan(WorldGenPlan plan, Random rand, int x, int y, int z) {
+
 		final int veinSize = genVeinSize;
 		final int branchSize = 1 + (veinSize / 30);
 		final int subBranchSize = 1 + (branchSize / 5);
@@ -125,7 +131,8 @@ public class WorldGenMinableLargeVein extends WorldGenerator {
 							posZ2 += rand.nextInt(2) * directionZ2;
 						}
 
-						r |= generateBlock(world, posX2, posY2, posZ2, genBlock, cluster);
+						plan.add(posX2, posY2, posZ2, cluster, genBlock);
+						r = true;
 
 						if (sparse) {
 							blocksVein++;
@@ -135,7 +142,8 @@ public class WorldGenMinableLargeVein extends WorldGenerator {
 					}
 				}
 
-				r |= generateBlock(world, posX, posY, posZ, genBlock, cluster);
+				plan.add(posX, posY, posZ, cluster, genBlock);
+				r = true;
 
 				blocksBranch++;
 			}
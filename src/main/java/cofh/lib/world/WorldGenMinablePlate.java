@@ -1,7 +1,5 @@
 package cofh.lib.world;
 
-import static cofh.lib.world.WorldGenMinableCluster.generateBlock;
-
 import cofh.lib.util.WeightedRandomBlock;
 
 import java.util.List;
@@ -10,7 +8,7 @@ import java.util.Random;
 import net.minecraft.world.World;
 import net.minecraft.world.gen.feature.WorldGenerator;
 
-public class WorldGenMinablePlate extends WorldGenerator {
+public class WorldGenMinablePlate extends WorldGenerator implements IPlannableGenerator {
 
 	private final List<WeightedRandomBlock> cluster;
 	private final WeightedRandomBlock[] genBlock;
@@ -29,6 +27,12 @@ public class WorldGenMinablePlate extends WorldGenerator {
 	@Override
 	public boolean generate(World world, Random rand, int x, int y, int z) {
 
+		return WorldGenPlan.generate(this, world, rand, x, y, z);
+	}
+
+	@Override
+	public boolean plan(WorldGenPlan plan, Random rand, int x, int y, int z) {
+
 		++y;
 		int size = radius;
 		if (radius > variation + 1) {
@@ -46,7 +50,8 @@ public class WorldGenMinablePlate extends WorldGenerator {
 
 				if (zSize * zSize + xDist <= dist) {
 					for (int posY = y - height; slim ? posY < y + height : posY <= y + height; ++posY) {
-						r |= generateBlock(world, posX, posY, posZ, genBlock, cluster);
+						plan.add(posX, posY, posZ, cluster, genBlock);
+						r = true;
 					}
 				}
 			}
@@ -0,0 +1,222 @@
+package cofh.lib.world;
+
+import static cofh.lib.util.LongLinkedHashSet.*;
+import static cofh.lib.world.WorldGenMinableCluster.*;
+
+import cofh.lib.util.WeightedRandomBlock;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import net.minecraft.world.World;
+
+/**
+ * The block writes one or more {@link IPlannableGenerator}s intend to make, recorded without touching a world so they can be computed on any thread and
+ * applied later by {@link #commit(World, Random)} on the server thread.
+ * <p>
+ * Each write names a weighted block list and, optionally, the blocks it may replace. Whether a block may be replaced is decided at commit time against the
+ * live world, in the order the writes were planned, so a plan commits exactly as the generator would have run directly. A group (see {@link #begin()}) may
+ * also carry requirements: positions that must all be replaceable, or none of the group's writes are made.
+ * <p>
+ * Not thread safe; a plan belongs to one thread at a time.
+ */
+@SuppressWarnings("unchecked")
+public class WorldGenPlan {
+
+	private static final ThreadLocal<WorldGenPlan> SCRATCH = new ThreadLocal<WorldGenPlan>() {
+
+		@Override
+		protected WorldGenPlan initialValue() {
+
+			return new WorldGenPlan();
+		}
+	};
+
+	/**
+	 * Plans <code>gen</code> at the given position and commits it to <code>world</code> at once, choosing blocks with <code>world.rand</code> as the
+	 * generators always have.
+	 */
+	public static boolean generate(IPlannableGenerator gen, World world, Random rand, int x, int y, int z) {
+
+		WorldGenPlan plan = SCRATCH.get();
+		if (plan.inUse) {
+			plan = new WorldGenPlan();
+		}
+		plan.inUse = true;
+		try {
+			plan.clear();
+			plan.begin();
+			if (!gen.plan(plan, rand, x, y, z)) {
+				return false;
+			}
+			return plan.commit(world, world.rand);
+		} finally {
+			plan.inUse = false;
+			plan.clear();
+		}
+	}
+
+	/* one entry per write or requirement */
+	private long[] positions = new long[64];
+	private int[] ops = new int[64];
+	private int size;
+
+	/* start of each group */
+	private int[] groups = new int[4];
+	private int groupCount;
+
+	/* distinct (blocks, material) pairs; ops index these */
+	private Object[] palette = new Object[8];
+	private int paletteSize;
+	private boolean inUse;
+	private Random rand;
+
+	public WorldGenPlan() {
+
+	}
+
+	/**
+	 * @param rand
+	 *            Used by {@link #commit(World)} to choose among weighted blocks.
+	 */
+	public WorldGenPlan(Random rand) {
+
+		this.rand = rand;
+	}
+
+	public int size() {
+
+		return size;
+	}
+
+	public boolean isEmpty() {
+
+		return size == 0;
+	}
+
+	public void clear() {
+
+		size = 0;
+		groupCount = 0;
+		Arrays.fill(palette, 0, paletteSize, null);
+		paletteSize = 0;
+	}
+
+	/**
+	 * Starts a new group. Requirements apply to the writes of their own group only; a plan that never calls this is one group.
+	 */
+	public void begin() {
+
+		if (groupCount > 0 && groups[groupCount - 1] == size) {
+			return;
+		}
+		if (groupCount == groups.length) {
+			groups = Arrays.copyOf(groups, groupCount * 2);
+		}
+		groups[groupCount++] = size;
+	}
+
+	/**
+	 * Plans a block from <code>blocks</code> at the given position, if the block there at commit time is one of <code>material</code>.
+	 *
+	 * @param material
+	 *            The blocks that may be replaced; null or empty to replace anything.
+	 */
+	public void add(int x, int y, int z, List<WeightedRandomBlock> blocks, WeightedRandomBlock[] material) {
+
+		append(pack(x, y, z), paletteIndex(blocks, material) << 1);
+	}
+
+	/**
+	 * Requires the block at the given position to be one of <code>material</code> at commit time, or the current group is skipped.
+	 */
+	public void require(int x, int y, int z, WeightedRandomBlock[] material) {
+
+		append(pack(x, y, z), paletteIndex(null, material) << 1 | 1);
+	}
+
+	/**
+	 * Applies the plan to <code>world</code>, choosing blocks with the <code>Random</code> the plan was created with, or <code>world.rand</code>.
+	 */
+	public boolean commit(World world) {
+
+		return commit(world, rand != null ? rand : world.rand);
+	}
+
+	/**
+	 * Applies the plan to <code>world</code>. Must be called on the thread that owns <code>world</code>.
+	 *
+	 * @param rand
+	 *            Chooses among weighted blocks; only drawn from for writes that are made.
+	 * @return True if any block was placed.
+	 */
+	public boolean commit(World world, Random rand) {
+
+		if (groupCount == 0) {
+			begin();
+		}
+		boolean r = false;
+		for (int g = 0; g < groupCount; ++g) {
+			int start = groups[g], end = g + 1 < groupCount ? groups[g + 1] : size;
+			if (!meetsRequirements(world, start, end)) {
+				continue;
+			}
+			for (int i = start; i < end; ++i) {
+				int op = ops[i];
+				if ((op & 1) != 0) {
+					continue;
+				}
+				long pos = positions[i];
+				int x = unpackX(pos), y = unpackY(pos), z = unpackZ(pos);
+				int p = (op >> 1) * 2;
+				WeightedRandomBlock[] material = (WeightedRandomBlock[]) palette[p + 1];
+				if (canGenerateInBlock(world, x, y, z, material)) {
+					r |= generateBlock(world, rand, x, y, z, (List<WeightedRandomBlock>) palette[p]);
+				}
+			}
+		}
+		return r;
+	}
+
+	private boolean meetsRequirements(World world, int start, int end) {
+
+		for (int i = start; i < end; ++i) {
+			int op = ops[i];
+			if ((op & 1) != 0) {
+				long pos = positions[i];
+				if (!canGenerateInBlock(world, unpackX(pos), unpackY(pos), unpackZ(pos), (WeightedRandomBlock[]) palette[(op >> 1) * 2 + 1])) {
+					return false;
+				}
+			}
+		}
+		return true;
+	}
+
+	private void append(long pos, int op) {
+
+		if (size == positions.length) {
+			positions = Arrays.copyOf(positions, size * 2);
+			ops = Arrays.copyOf(ops, size * 2);
+		}
+		positions[size] = pos;
+		ops[size++] = op;
+	}
+
+	private int paletteIndex(List<WeightedRandomBlock> blocks, WeightedRandomBlock[] material) {
+
+		// generators reuse the same few lists, so compare identities, most recent first
+		for (int i = paletteSize; (i -= 2) >= 0;) {
+			if (palette[i] == blocks && palette[i + 1] == material) {
+				return i >> 1;
+			}
+		}
+		if (paletteSize == palette.length) {
+			palette = Arrays.copyOf(palette, paletteSize * 2);
+		}
+		palette[paletteSize++] = blocks;
+		palette[paletteSize++] = material;
+		return (paletteSize >> 1) - 1;
+	}
+
+}
@@ -0,0 +1,109 @@
+package cofh.lib.world;
+
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Plans {@link IPlannableGenerator}s on a pool of worker threads, for bulk generation such as pregenerating a map.
+ * <p>
+ * Each task gets its own <code>Random</code> seeded from {@link #seed(long, int, int, String)}, so a plan depends only on the world seed, the chunk and the
+ * feature, never on scheduling. Plans are committed on the server thread with {@link WorldGenPlan#commit(net.minecraft.world.World)}; commit them in the
+ * order they were submitted and the world comes out the same however many threads planned it.
+ */
+public class WorldGenPlanner {
+
+	/**
+	 * A unit of planning, typically every attempt one feature makes in one chunk. Call {@link WorldGenPlan#begin()} before each generator run, so a
+	 * generator's requirements only hold back its own writes.
+	 */
+	public static interface Task {
+
+		public void plan(WorldGenPlan plan, Random rand);
+	}
+
+	private static final int KEEP_ALIVE_SECONDS = 30;
+	private static final AtomicInteger poolCount = new AtomicInteger();
+
+	/**
+	 * @return A seed for <code>feature</code> in the given chunk, derived like vanilla's population seed.
+	 */
+	public static long seed(long worldSeed, int chunkX, int chunkZ, String feature) {
+
+		Random rand = new Random(worldSeed);
+		long a = rand.nextLong() / 2L * 2L + 1L;
+		long b = rand.nextLong() / 2L * 2L + 1L;
+		return (chunkX * a + chunkZ * b ^ worldSeed) + feature.hashCode() * 0x9E3779B97F4A7C15L;
+	}
+
+	private final ThreadPoolExecutor executor;
+
+	/**
+	 * @param threads
+	 *            Number of worker threads; they are daemons, run below normal priority so the server thread keeps ticking, and exit after
+	 *            {@value #KEEP_ALIVE_SECONDS} seconds without work, so a planner nobody shuts down holds no threads while idle.
+	 */
+	public WorldGenPlanner(int threads) {
+
+		final int pool = poolCount.incrementAndGet();
+		executor = new ThreadPoolExecutor(threads, threads, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+
+			private final AtomicInteger count = new AtomicInteger();
+
+			@Override
+			public Thread newThread(Runnable r) {
+
+				Thread thread = new Thread(r, "CoFH world gen planner " + pool + "-" + count.incrementAndGet());
+				thread.setDaemon(true);
+				thread.setPriority(Thread.NORM_PRIORITY - 1);
+				return thread;
+			}
+		});
+		executor.allowCoreThreadTimeOut(true);
+	}
+
+	public Future<WorldGenPlan> submit(final long seed, final Task task) {
+
+		return executor.submit(new Callable<WorldGenPlan>() {
+
+			@Override
+			public WorldGenPlan call() {
+
+				Random rand = new Random(seed);
+				WorldGenPlan plan = new WorldGenPlan(rand);
+				task.plan(plan, rand);
+				return plan;
+			}
+		});
+	}
+
+	/**
+	 * Plans a single run of <code>gen</code> at the given position.
+	 */
+	public Future<WorldGenPlan> submit(long seed, final IPlannableGenerator gen, final int x, final int y, final int z) {
+
+		return submit(seed, new Task() {
+
+			@Override
+			public void plan(WorldGenPlan plan, Random rand) {
+
+				plan.begin();
+				gen.plan(plan, rand, x, y, z);
+			}
+		});
+	}
+
+	/**
+	 * Stops the workers once submitted plans are finished.
+	 */
+	public void shutdown() {
+
+		executor.shutdown();
+	}
+
+}
@@ -14,7 +14,7 @@ import net.minecraft.util.MathHelper;
 import net.minecraft.world.World;
 import net.minecraft.world.gen.feature.WorldGenerator;
 
-public class WorldGenSparseMinableCluster extends WorldGenerator {
+public class WorldGenSparseMinableCluster extends WorldGenerator implements IPlannableGenerator {
 
 	private final List<WeightedRandomBlock> cluster;
 	private final int genClusterSize;
@@ -60,6 +60,12 @@ public class WorldGenSparseMinableCluster extends WorldGenerator {
 	@Override
 	public boolean generate(World world, Random rand, int x, int y, int z) {
 
+		return WorldGenPlan.generate(this, world, rand, x, y, z);
+	}
+
+	@Override
+	public boolean plan(WorldGenPlan plan, Random rand, int x, int y, int z) {
+
 		int blocks = genClusterSize;
 		float f = rand.nextFloat() * (float) Math.PI;
 		// despite naming, these are not exactly min/max. more like direction
@@ -128,7 +134,8 @@ public class WorldGenSparseMinableCluster extends WorldGenerator {
 							continue;
 						}
 
-						r |= generateBlock(world, blockX, blockY, blockZ, genBlock, cluster);
+						plan.add(blockX, blockY, blockZ, cluster, genBlock);
+						r = true;
 					}
 				}
 			}
@@ -13,7 +13,8 @@ public class BiomeDictionaryArbiter {
 
 	private static HashMap<BiomeGenBase, Type[]> types = new HashMap<BiomeGenBase, Type[]>();
 	private static HashMap<Type, BiomeGenBase[]> biomes = new HashMap<Type, BiomeGenBase[]>();
-	private static boolean loaded = Loader.instance().isInState(LoaderState.AVAILABLE);
+	private static boolean loaded = Loader.instance().hasReachedState(LoaderState.AVAILABLE);
+	private static int version;
 
 	public static Type[] getTypesForBiome(BiomeGenBase biome) {
 
@@ -24,7 +25,7 @@ public class BiomeDictionaryArbiter {
 			}
 			return r;
 		}
-		loaded = Loader.instance().isInState(LoaderState.AVAILABLE);
+		loaded = Loader.instance().hasReachedState(LoaderState.AVAILABLE);
 		return BiomeDictionary.getTypesForBiome(biome);
 	}
 
@@ -37,10 +38,37 @@ public class BiomeDictionaryArbiter {
 			}
 			return r;
 		}
-		loaded = Loader.instance().isInState(LoaderState.AVAILABLE);
+		loaded = Loader.instance().hasReachedState(LoaderState.AVAILABLE);
 		return BiomeDictionary.getBiomesForType(type);
 	}
 
+	/**
+	 * Changes whenever {@link #invalidate()} is called, so data derived from the biome dictionary (e.g. {@link BiomeInfoSet}'s compiled table) can tell
+	 * when to rebuild.
+	 *
+	 * @return -1 until mods have finished loading, while the dictionary may still change.
+	 */
+	public static int getVersion() {
+
+		if (!loaded) {
+			loaded = Loader.instance().hasReachedState(LoaderState.AVAILABLE);
+			if (!loaded) {
+				return -1;
+			}
+		}
+		return version;
+	}
+
+	/**
+	 * Drops everything cached from the biome dictionary. Call after registering biome types once mods have finished loading.
+	 */
+	public static void invalidate() {
+
+		types.clear();
+		biomes.clear();
+		version = (version + 1) & Integer.MAX_VALUE;
+	}
+
 	private BiomeDictionaryArbiter() {
 
 		throw new IllegalArgumentException();
@@ -64,4 +64,12 @@ public class BiomeInfo {
 		return !whitelist;
 	}
 
+	/**
+	 * @return N for a match that succeeds one time in N; 1 for a match that always succeeds.
+	 */
+	public int getRarity() {
+
+		return 1;
+	}
+
 }
@@ -29,4 +29,10 @@ public class BiomeInfoRarity extends BiomeInfo {
 		}
 		return r;
 	}
+
+	@Override
+	public int getRarity() {
+
+		return rarity;
+	}
 }
@@ -10,10 +10,44 @@ import java.util.Set;
 
 import net.minecraft.world.biome.BiomeGenBase;
 
+/**
+ * An ordered collection of {@link BiomeInfo} entries; a biome is contained if any entry matches it.
+ * <p>
+ * {@link #contains(BiomeGenBase, Random)} answers from a table indexed by biome id, compiled on first use and rebuilt when the set is modified or
+ * {@link BiomeDictionaryArbiter#invalidate()} is called. Until mods have finished loading, or for biomes not in <code>BiomeGenBase</code>'s biome list,
+ * every entry is tested as before.
+ */
 public class BiomeInfoSet implements Set<BiomeInfo> {
 
+	/**
+	 * The rolls for a biome some entry always matches.
+	 */
+	private static final int[] ALWAYS = { 1 };
+	/**
+	 * Marks a biome the table cannot answer for.
+	 */
+	private static final int[] NOT_COMPILED = {};
+
+	private static final class Compiled {
+
+		final BiomeGenBase[] biomeList;
+		/* per biome id: null if no entry matches, else the rarity of each matching entry in order, up to the first that always matches */
+		final int[][] rolls;
+		final int version;
+		final int modCount;
+
+		Compiled(BiomeGenBase[] biomeList, int[][] rolls, int version, int modCount) {
+
+			this.biomeList = biomeList;
+			this.rolls = rolls;
+			this.version = version;
+			this.modCount = modCount;
+		}
+	}
+
 	protected BiomeInfo[] elementData;
 	protected int size, modCount;
+	private Compiled compiled;
 
 	public BiomeInfoSet() {
 
@@ -28,6 +62,7 @@ public class BiomeInfoSet implements Set<BiomeInfo> {
 	public BiomeInfoSet(Collection<? extends BiomeInfo> c) {
 
 		elementData = c.toArray(new BiomeInfo[c.size()]);
+		size = elementData.length;
 	}
 
 	public void ensureCapacity(int minCapacity) {
@@ -60,13 +95,7 @@ public class BiomeInfoSet implements Set<BiomeInfo> {
 
 		BiomeInfo[] oldData = elementData;
 		if (o instanceof BiomeGenBase) {
-			BiomeGenBase bgb = (BiomeGenBase) o;
-			for (int i = 0, e = size; i < e; ++i) {
-				if (oldData[i] != null && oldData[i].isBiomeEqual(bgb, null)) {
-					return true;
-				}
-			}
-			return false;
+			return contains((BiomeGenBase) o, null);
 		}
 		for (int i = 0, e = size; i < e; ++i) {
 			if (oldData[i] == o || (oldData[i] != null && o != null && oldData[i].equals(o))) {
@@ -78,6 +107,22 @@ public class BiomeInfoSet implements Set<BiomeInfo> {
 
 	public boolean contains(BiomeGenBase bgb, Random rand) {
 
+		int[] rolls = getRolls(bgb);
+		if (rolls != NOT_COMPILED) {
+			if (rolls == null) {
+				return false;
+			}
+			if (rand == null) {
+				return true;
+			}
+			// the same draws from rand as testing each entry in turn
+			for (int i = 0, e = rolls.length; i < e; ++i) {
+				if (rolls[i] <= 1 || rand.nextInt(rolls[i]) == 0) {
+					return true;
+				}
+			}
+			return false;
+		}
 		BiomeInfo[] oldData = elementData;
 		for (int i = 0, e = size; i < e; ++i) {
 			if (oldData[i] != null && oldData[i].isBiomeEqual(bgb, rand)) {
@@ -87,6 +132,99 @@ public class BiomeInfoSet implements Set<BiomeInfo> {
 		return false;
 	}
 
+	/**
+	 * @return False only if {@link #contains(BiomeGenBase, Random)} is certain to be false for <code>bgb</code>.
+	 */
+	public boolean canContain(BiomeGenBase bgb) {
+
+		int[] rolls = getRolls(bgb);
+		return rolls != NOT_COMPILED ? rolls != null : contains(bgb, null);
+	}
+
+	/**
+	 * @return True only if {@link #contains(BiomeGenBase, Random)} is certain to be true for <code>bgb</code>, whatever the random draws.
+	 */
+	public boolean alwaysContains(BiomeGenBase bgb) {
+
+		int[] rolls = getRolls(bgb);
+		if (rolls != NOT_COMPILED) {
+			return rolls != null && rolls[rolls.length - 1] <= 1;
+		}
+		return false;
+	}
+
+	private int[] getRolls(BiomeGenBase bgb) {
+
+		Compiled c = getCompiled();
+		if (c != null && bgb != null) {
+			int id = bgb.biomeID;
+			if (id >= 0 && id < c.biomeList.length && c.biomeList[id] == bgb) {
+				return c.rolls[id];
+			}
+		}
+		return NOT_COMPILED;
+	}
+
+	/**
+	 * Builds the biome id table now instead of on the next {@link #contains(BiomeGenBase, Random)}.
+	 *
+	 * @return False if the set cannot be compiled yet, or holds entries of a {@link BiomeInfo} subclass it does not know, and is tested entry by entry.
+	 */
+	public boolean compile() {
+
+		return getCompiled() != null;
+	}
+
+	private Compiled getCompiled() {
+
+		int version = BiomeDictionaryArbiter.getVersion();
+		if (version < 0) {
+			return null;
+		}
+		Compiled c = compiled;
+		if (c != null && c.version == version && c.modCount == modCount) {
+			return c;
+		}
+		return compiled = compile(version);
+	}
+
+	private Compiled compile(int version) {
+
+		BiomeInfo[] data = elementData;
+		for (int i = 0, e = size; i < e; ++i) {
+			// others may use rand in ways the table cannot reproduce
+			Class<?> type = data[i] == null ? null : data[i].getClass();
+			if (type != null && type != BiomeInfo.class && type != BiomeInfoRarity.class) {
+				return null;
+			}
+		}
+		BiomeGenBase[] biomeList = BiomeGenBase.getBiomeGenArray().clone();
+		int[][] rolls = new int[biomeList.length][];
+		int[] buffer = new int[size];
+		for (int id = 0; id < biomeList.length; ++id) {
+			BiomeGenBase biome = biomeList[id];
+			if (biome == null) {
+				continue;
+			}
+			int n = 0;
+			for (int i = 0, e = size; i < e; ++i) {
+				if (data[i] != null && data[i].isBiomeEqual(biome, null)) {
+					int rarity = data[i].getRarity();
+					buffer[n++] = rarity;
+					if (rarity <= 1) {
+						break;
+					}
+				}
+			}
+			if (n == 1 && buffer[0] <= 1) {
+				rolls[id] = ALWAYS;
+			} else if (n > 0) {
+				rolls[id] = Arrays.copyOf(buffer, n);
+			}
+		}
+		return new Compiled(biomeList, rolls, version, modCount);
+	}
+
 	public BiomeInfo get(int i) {
 
 		if ((i < 0) | i >= size) {
@@ -0,0 +1,126 @@
+package cofh.lib.world.biome;
+
+import java.lang.ref.WeakReference;
+import java.util.HashMap;
+
+import net.minecraft.world.World;
+import net.minecraft.world.WorldProvider;
+import net.minecraft.world.biome.BiomeGenBase;
+import net.minecraft.world.chunk.Chunk;
+
+/**
+ * The distinct biomes of one chunk's 16x16 columns, read once per chunk and shared by every feature generating in it.
+ * <p>
+ * Biomes come from the chunk's biome array. Columns the array does not know yet, and every column in dimensions whose {@link WorldProvider} overrides
+ * <code>getBiomeGenForCoords</code>, are asked of the world instead, so the result always matches {@link World#getBiomeGenForCoords(int, int)}.
+ */
+public final class ChunkBiomes {
+
+	private static final ThreadLocal<ChunkBiomes> CACHE = new ThreadLocal<ChunkBiomes>() {
+
+		@Override
+		protected ChunkBiomes initialValue() {
+
+			return new ChunkBiomes();
+		}
+	};
+	private static final HashMap<Class<?>, Boolean> providerOverrides = new HashMap<Class<?>, Boolean>();
+
+	/**
+	 * @return The biomes of the given chunk. The instance is reused by the next call on the same thread.
+	 */
+	public static ChunkBiomes get(World world, int chunkX, int chunkZ) {
+
+		ChunkBiomes r = CACHE.get();
+		if (r.world == null || r.world.get() != world || r.chunkX != chunkX || r.chunkZ != chunkZ) {
+			r.load(world, chunkX, chunkZ);
+		}
+		return r;
+	}
+
+	private static boolean overridesBiomes(WorldProvider provider) {
+
+		Class<?> type = provider.getClass();
+		synchronized (providerOverrides) {
+			Boolean r = providerOverrides.get(type);
+			if (r == null) {
+				try {
+					// added by Forge, so not obfuscated
+					r = type.getMethod("getBiomeGenForCoords", int.class, int.class).getDeclaringClass() != WorldProvider.class;
+				} catch (NoSuchMethodException e) {
+					r = Boolean.TRUE;
+				}
+				providerOverrides.put(type, r);
+			}
+			return r;
+		}
+	}
+
+	private WeakReference<World> world;
+	private int chunkX, chunkZ;
+	private final BiomeGenBase[] biomes = new BiomeGenBase[256];
+	private final long[] seen = new long[4];
+	private int size;
+
+	private ChunkBiomes() {
+
+	}
+
+	private void load(World world, int chunkX, int chunkZ) {
+
+		this.world = new WeakReference<World>(world);
+		this.chunkX = chunkX;
+		this.chunkZ = chunkZ;
+		size = 0;
+		seen[0] = seen[1] = seen[2] = seen[3] = 0;
+
+		int blockX = chunkX << 4, blockZ = chunkZ << 4;
+		byte[] ids = overridesBiomes(world.provider) ? null : world.getChunkFromChunkCoords(chunkX, chunkZ).getBiomeArray();
+		BiomeGenBase[] biomeList = BiomeGenBase.getBiomeGenArray();
+		for (int i = 0; i < 256; ++i) {
+			int id = ids == null ? 255 : ids[i] & 255;
+			BiomeGenBase biome = id == 255 ? null : biomeList[id];
+			if (biome == null) {
+				// array index is z << 4 | x
+				biome = world.getBiomeGenForCoords(blockX + (i & 15), blockZ + (i >> 4));
+			}
+			add(biome);
+		}
+	}
+
+	private void add(BiomeGenBase biome) {
+
+		int id = biome == null ? -1 : biome.biomeID;
+		if (id >= 0 && id < 256 && BiomeGenBase.getBiomeGenArray()[id] == biome) {
+			long bit = 1L << id;
+			if ((seen[id >> 6] & bit) != 0) {
+				return;
+			}
+			seen[id >> 6] |= bit;
+		} else {
+			for (int i = 0; i < size; ++i) {
+				if (biomes[i] == biome) {
+					return;
+				}
+			}
+		}
+		biomes[size++] = biome;
+	}
+
+	/**
+	 * @return The number of distinct biomes in the chunk.
+	 */
+	public int size() {
+
+		return size;
+	}
+
+	public BiomeGenBase get(int i) {
+
+		if (i < 0 || i >= size) {
+			throw new IndexOutOfBoundsException();
+		}
+		return biomes[i];
+	}
+
+}
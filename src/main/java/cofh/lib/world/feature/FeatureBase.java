@@ -1,10 +1,14 @@
 package cofh.lib.world.feature;
 
 import cofh.api.world.IFeatureGenerator;
+import cofh.lib.world.BulkBlockWriter;
+import cofh.lib.world.ChunkColumns;
 import cofh.lib.world.biome.BiomeInfo;
 import cofh.lib.world.biome.BiomeInfoSet;
+import cofh.lib.world.biome.ChunkBiomes;
 
-import gnu.trove.set.hash.THashSet;
+import gnu.trove.TDecorators;
+import gnu.trove.set.hash.TIntHashSet;
 
 import java.util.Random;
 import java.util.Set;
@@ -34,8 +38,14 @@ public abstract class FeatureBase implements IFeatureGenerator {
 	public final GenRestriction dimensionRestriction;
 	public final boolean regen;
 	protected int rarity;
+	protected boolean fastPlacement;
 	protected final BiomeInfoSet biomes = new BiomeInfoSet(1);
-	protected final Set<Integer> dimensions = new THashSet<Integer>();
+	private final TIntHashSet dimensionSet = new TIntHashSet();
+	/**
+	 * A boxed view of the dimension restriction; changes write through. Use {@link #addDimension(int)}.
+	 */
+	@Deprecated
+	protected final Set<Integer> dimensions = TDecorators.wrap(dimensionSet);
 
 	/**
 	 * Shortcut to add a Feature with no biome or dimension restriction.
@@ -74,6 +84,35 @@ public abstract class FeatureBase implements IFeatureGenerator {
 		this.rarity = rarity;
 	}
 
+	/**
+	 * Writes this feature's blocks through a {@link BulkBlockWriter} instead of one <code>World.setBlock</code> at a time. Inside a batch started with
+	 * {@link #beginChunk(World)} the feature joins it, and each touched chunk is relit and resent once for all the features of the generated chunk; on
+	 * its own it starts a batch per generation, so once per feature.
+	 */
+	public FeatureBase setFastPlacement(boolean fastPlacement) {
+
+		this.fastPlacement = fastPlacement;
+		return this;
+	}
+
+	/**
+	 * Starts one {@link BulkBlockWriter} batch for all the features generated in a chunk. A generation handler calls this before it runs the features of
+	 * a chunk and {@link #endChunk(BulkBlockWriter)} in a finally block after them. As for any active batch, generators built on
+	 * {@link cofh.lib.world.WorldGenMinableCluster} write through it whether or not their feature set fast placement.
+	 */
+	public static BulkBlockWriter beginChunk(World world) {
+
+		return BulkBlockWriter.begin(world);
+	}
+
+	/**
+	 * Ends a batch started with {@link #beginChunk(World)}, relighting and resending every chunk its features wrote to.
+	 */
+	public static void endChunk(BulkBlockWriter writer) {
+
+		writer.end();
+	}
+
 	public FeatureBase addBiome(BiomeInfo biome) {
 
 		biomes.add(biome);
@@ -88,7 +127,7 @@ public abstract class FeatureBase implements IFeatureGenerator {
 
 	public FeatureBase addDimension(int dimID) {
 
-		dimensions.add(dimID);
+		dimensionSet.add(dimID);
 		return this;
 	}
 
@@ -106,18 +145,62 @@ public abstract class FeatureBase implements IFeatureGenerator {
 			return false;
 		}
 		if (dimensionRestriction != GenRestriction.NONE
-				&& dimensionRestriction == GenRestriction.BLACKLIST == dimensions.contains(world.provider.dimensionId)) {
+				&& dimensionRestriction == GenRestriction.BLACKLIST == dimensionSet.contains(world.provider.dimensionId)) {
 			return false;
 		}
 		if (rarity > 1 && random.nextInt(rarity) != 0) {
 			return false;
 		}
+		if (biomeRestriction != GenRestriction.NONE && isChunkLocal() && !canGenerateInChunk(world, chunkX, chunkZ)) {
+			return false;
+		}
 
-		return generateFeature(random, chunkX, chunkZ, world);
+		boolean r;
+		if (!fastPlacement || BulkBlockWriter.get(world) != null) {
+			// an outer batch takes the writes and flushes once when the handler ends it
+			r = generateFeature(random, chunkX, chunkZ, world);
+		} else {
+			BulkBlockWriter writer = BulkBlockWriter.begin(world);
+			try {
+				r = generateFeature(random, chunkX, chunkZ, world);
+			} finally {
+				writer.end();
+			}
+		}
+		if (r) {
+			// generators may write blocks that move neither height stamp
+			ChunkColumns.invalidate();
+		}
+		return r;
 	}
 
 	protected abstract boolean generateFeature(Random random, int chunkX, int chunkZ, World world);
 
+	/**
+	 * @return True if every {@link #canGenerateInBiome(World, int, int, Random)} check this feature makes lies inside the chunk being generated, so the
+	 *         chunk's biomes can rule it out before any attempt is made.
+	 */
+	protected boolean isChunkLocal() {
+
+		return false;
+	}
+
+	/**
+	 * @return False if no column of the chunk can pass {@link #canGenerateInBiome(World, int, int, Random)}.
+	 */
+	protected boolean canGenerateInChunk(World world, int chunkX, int chunkZ) {
+
+		ChunkBiomes chunkBiomes = ChunkBiomes.get(world, chunkX, chunkZ);
+		boolean whitelist = biomeRestriction == GenRestriction.WHITELIST;
+		for (int i = 0, e = chunkBiomes.size(); i < e; ++i) {
+			BiomeGenBase biome = chunkBiomes.get(i);
+			if (whitelist ? biomes.canContain(biome) : !biomes.alwaysContains(biome)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
 	protected boolean canGenerateInBiome(World world, int x, int z, Random rand) {
 
 		if (biomeRestriction != GenRestriction.NONE) {
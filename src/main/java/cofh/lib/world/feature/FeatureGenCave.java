@@ -84,4 +84,10 @@ public class FeatureGenCave extends FeatureBase {
 		return generated;
 	}
 
+	@Override
+	protected boolean isChunkLocal() {
+
+		return true;
+	}
+
 }
@@ -42,4 +42,10 @@ public class FeatureGenNormal extends FeatureBase {
 		return generated;
 	}
 
+	@Override
+	protected boolean isChunkLocal() {
+
+		return true;
+	}
+
 }
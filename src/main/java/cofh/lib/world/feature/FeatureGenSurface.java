@@ -3,7 +3,7 @@ package cofh.lib.world.feature;
 import static cofh.lib.world.WorldGenMinableCluster.canGenerateInBlock;
 
 import cofh.lib.util.WeightedRandomBlock;
-import cofh.lib.util.helpers.BlockHelper;
+import cofh.lib.world.ChunkColumns;
 
 import java.util.List;
 import java.util.Random;
@@ -41,7 +41,7 @@ public class FeatureGenSurface extends FeatureBase {
 				continue;
 			}
 
-			int y = BlockHelper.getSurfaceBlockY(world, x, z);
+			int y = ChunkColumns.getSurfaceBlockY(world, x, z);
 			l: {
 				Block block = world.getBlock(x, y, z);
 				if (!block.isAir(world, x, y, z) && canGenerateInBlock(world, x, y, z, matList)) {
@@ -55,4 +55,10 @@ public class FeatureGenSurface extends FeatureBase {
 		return generated;
 	}
 
+	@Override
+	protected boolean isChunkLocal() {
+
+		return true;
+	}
+
 }
@@ -1,8 +1,8 @@
 package cofh.lib.world.feature;
 
 import cofh.lib.util.WeightedRandomBlock;
-import cofh.lib.util.helpers.BlockHelper;
 import cofh.lib.util.helpers.FluidHelper;
+import cofh.lib.world.ChunkColumns;
 
 import java.util.Arrays;
 import java.util.List;
@@ -59,7 +59,7 @@ public class FeatureGenUnderfluid extends FeatureBase {
 				continue;
 			}
 
-			int y = BlockHelper.getSurfaceBlockY(world, x, z);
+			int y = ChunkColumns.getSurfaceBlockY(world, x, z);
 			l: do {
 				Block block = world.getBlock(x, y, z);
 				if (water) {
@@ -94,4 +94,10 @@ public class FeatureGenUnderfluid extends FeatureBase {
 		return generated;
 	}
 
+	@Override
+	protected boolean isChunkLocal() {
+
+		return true;
+	}
+
 }
@@ -41,4 +41,10 @@ public class FeatureGenUniform extends FeatureBase {
 		return generated;
 	}
 
+	@Override
+	protected boolean isChunkLocal() {
+
+		return true;
+	}
+
 }